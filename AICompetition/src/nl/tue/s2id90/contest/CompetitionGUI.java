@@ -18,6 +18,7 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -54,6 +55,7 @@ import nl.tue.s2id90.contest.util.TimedSearchTask;
 import nl.tue.s2id90.game.Game;
 import nl.tue.s2id90.game.Game.Result;
 import nl.tue.s2id90.game.GameState;
+import nl.tue.s2id90.game.LegalMoves;
 import nl.tue.s2id90.game.Player;
 import nl.tue.win.util.Timer;
 
@@ -79,14 +81,18 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
     protected List<CompetitionListener<M>> listeners = new ArrayList<>();
     private Competition competition;
     
+    private final LegalMoves<M> legalMoves;     // valid moves of the current game state
+    
     /**
      * Creates new form CompetitionGUI
      * @param selector predicate that only results in true if the argument plugin is a suitable plugin
-     * @param gameGUI
+     * @param pluginFolders
+     * @param moveEncoder maps a move to a long that identifies it within a game state, see LegalMoves
      */
-    public CompetitionGUI(Predicate<Plugin> selector, String[] pluginFolders) {
+    public CompetitionGUI(Predicate<Plugin> selector, String[] pluginFolders, ToLongFunction<? super M> moveEncoder) {
         this.selector = selector;
         this.pluginFolders = pluginFolders;
+        this.legalMoves = new LegalMoves<>(moveEncoder);
     }
     
     public void initComponents(GameGUI<S,Competitor,M> gameGUI) {
@@ -436,7 +442,8 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
         
     SearchTask currentSearchTask=null;
     private void continueGame(final Game game, final S gs) {
-        if ((currentGame==null) || gs.isEndState()) {
+        legalMoves.set(gs);     // reused for the end state check and to check the next AI move
+        if ((currentGame==null) || legalMoves.isEmpty()) {
             finishGame(game,gs);
         } else {
             updateGUI(game,gs); updateGUI();
@@ -484,7 +491,7 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
                 }
                 
                 // apply move in the current game state
-                if (gs.getMoves().contains(m)) {
+                if (legalMoves.contains(m)) {
                     //gs.doMove(m);
                     notifyCompetitionListeners(m); // notify of next AI move
                     //gameGUI.animateMove(m);
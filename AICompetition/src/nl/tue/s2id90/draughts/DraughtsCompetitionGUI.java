@@ -10,7 +10,7 @@ import org10x10.dam.game.Move;
  */
 public  class DraughtsCompetitionGUI extends CompetitionGUI<DraughtsPlayer,DraughtsPlayerProvider, Move, DraughtsState> {
     DraughtsCompetitionGUI(String[] pluginFolders) {
-        super(p->(p instanceof DraughtsPlugin)&& (p instanceof DraughtsPlayerProvider), pluginFolders);
+        super(p->(p instanceof DraughtsPlugin)&& (p instanceof DraughtsPlayerProvider), pluginFolders, MoveCodec::encode);
         DraughtsGUI gui = new DraughtsGUI();
         initComponents(gui);
         
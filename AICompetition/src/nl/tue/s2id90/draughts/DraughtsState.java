@@ -1,7 +1,10 @@
 package nl.tue.s2id90.draughts;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
 import nl.tue.s2id90.game.GameState;
 import org10x10.dam.game.BoardState;
 import org10x10.dam.game.Move;
@@ -65,35 +68,137 @@ public class DraughtsState implements GameState<Move> {
      **/
     final public static int WHITEFIELD = 5;
     
-    private final BoardState bs;
-    private final MoveGenerator moveGenerator = MoveGeneratorFactory.createMoveGeneratorInternational();
-    private List<Move> moves=null;
+    /** diagonal neighbours of every field, indexed by [field][direction], with
+     * the directions up-left, up-right, down-left, down-right; 0 if the
+     * neighbour is off the board. White men move up, black men move down.
+     **/
+    private static final int[][] NEIGHBOURS = new int[51][4];
+    private static final int[] NO_CAPTURES = new int[0];
+    private static final int[][] DELTAS = {{-1,-1},{-1,1},{1,-1},{1,1}};  // {row,column}
+    
+    static {
+        for(int f=1; f<=50; f++) {
+            int r = (f-1)/5, c = 2*((f-1)%5) + (r%2==0 ? 1 : 0);
+            for(int d=0; d<4; d++) {
+                int r2 = r + DELTAS[d][0], c2 = c + DELTAS[d][1];
+                if (r2>=0 && r2<10 && c2>=0 && c2<10) NEIGHBOURS[f][d] = 5*r2 + c2/2 + 1;
+            }
+        }
+    }
+    
+    /** Zobrist keys: a random number per [piece][field], and one for black to
+     * move. The hash key of a state is the XOR of the keys of all pieces on the
+     * board, and of BLACK_TO_MOVE if black is to move.
+     **/
+    private static final long[][] PIECE_KEYS = new long[5][51];
+    private static final long BLACK_TO_MOVE;
+    
+    static {
+        Random random = new Random(0x5EEDL);  // fixed seed: keys are equal in every run
+        for(int piece=WHITEPIECE; piece<=BLACKKING; piece++) {
+            for(int f=1; f<=50; f++) PIECE_KEYS[piece][f] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+    
+    /** if set (with -Ddraughts.verifyHashKey=true), every doMove and undoMove
+     * checks the incrementally updated hash key against a key computed from
+     * scratch, and throws an IllegalStateException if they differ.
+     **/
+    private static final boolean VERIFY_HASH_KEY = Boolean.getBoolean("draughts.verifyHashKey");
+    
+    /** move generator shared by all states of a thread. A MoveGenerator keeps
+     * the moves it generated internally, so it cannot be shared between threads;
+     * its result is always copied before it is returned.
+     **/
+    private static final ThreadLocal<MoveGenerator> MOVE_GENERATOR
+            = ThreadLocal.withInitial(MoveGeneratorFactory::createMoveGeneratorInternational);
+    
+    /** scratch board of setFEN, shared by all states of a thread: a FEN string
+     * is parsed into it completely before the state is changed.
+     **/
+    private static final ThreadLocal<int[]> FEN_PIECES = ThreadLocal.withInitial(() -> new int[51]);
+    
+    /** BoardState that gives direct access to its pieces array;
+     * BoardState.getPieces() returns a copy.
+     **/
+    private static final class Board extends BoardState {
+        private static final long serialVersionUID = 1L;
+        Board() { super(10,10); }
+        int[] pieces() { return board; }
+    }
+    
+    private final Board bs;
+    private final List<Move> moves = new ArrayList<>();         // buffer of the legal moves
+    private boolean movesValid = false;                         // whether moves is up to date
+    private final List<Move> captures = new ArrayList<>();      // buffer of getCaptures()
+    private final List<Move> quietMoves = new ArrayList<>();    // buffer of getQuietMoves()
+    
+    // evaluation features, updated incrementally in doMove and undoMove
+    private final int[] pieceCount = new int[5];   // indexed by piece
+    private int whiteTempi, blackTempi;
+    private int whiteBaseline, blackBaseline;
+    private int whiteCenter, blackCenter;
+    private long hashKey;
     
     /**
      * creates an initial  draughts state.
      */
     public DraughtsState() {
-        bs = new BoardState(10,10);
+        bs = new Board();
         bs.setBegin();
+        computeFeatures();
     }
     
     private DraughtsState(DraughtsState ds) {
-        this(ds.bs);
+        bs = (Board) ds.bs.clone();
+        copyFeatures(ds);
     }
     
     /** creates a draughts state with a copy of the given BoardState. **/
     DraughtsState(BoardState bs) {
-        this.bs = (BoardState) bs.clone();
+        this.bs = new Board();
+        this.bs.setPieces(bs.getPieces());
+        this.bs.setWhiteToMove(bs.isWhiteToMove());
+        this.bs.setGameType(bs.getGameType());
+        computeFeatures();
     }  
     
     /**
-     *
-     * @return
+     * @return a new list with the legal moves; the caller may change it.
+     * Use moveCount() and moveAt(i), or forEachMove(), to avoid the copy.
      */
     @Override
     public List<Move> getMoves() {
-        if (moves==null)
-            return moves=new ArrayList(moveGenerator.generateMoves(bs));
+        return new ArrayList<>(legalMoves());
+    }
+    
+    /** @return the i-th legal move, in the order of getMoves().
+     * Indices are only valid until the state is changed.
+     * @param i index of the move, 0 &lt;= i &lt; moveCount()
+     **/
+    @Override
+    public Move moveAt(int i) {
+        return legalMoves().get(i);
+    }
+    
+    /** calls action for every legal move, without copying the moves.
+     * action must not change this state.
+     * @param action action to perform on every legal move
+     **/
+    @Override
+    public void forEachMove(Consumer<? super Move> action) {
+        List<Move> legal = legalMoves();
+        for(int i=0; i<legal.size(); i++) action.accept(legal.get(i));
+    }
+    
+    /** @return the buffer with the legal moves, generated if necessary. **/
+    private List<Move> legalMoves() {
+        if (!movesValid) {
+            moves.clear();
+            moves.addAll(MOVE_GENERATOR.get().generateMoves(bs));
+            movesValid = true;
+        }
         return moves;
     }
 
@@ -103,9 +208,138 @@ public class DraughtsState implements GameState<Move> {
      */
     @Override
     public boolean isEndState() {
-        if (moves==null)
-            moves = new ArrayList(moveGenerator.generateMoves(bs));
-        return moves.isEmpty();
+        return !hasAnyMove();
+    }
+    
+    /** First stage of a staged move generation: returns the legal captures,
+     * or an empty list if the player to move cannot capture. Since capturing
+     * is compulsory, the captures are all legal moves if the list is not empty;
+     * otherwise the legal moves are given by getQuietMoves().
+     * The returned list is a buffer that is reused by the next call.
+     * @return the legal captures
+     **/
+    public List<Move> getCaptures() {
+        captures.clear();
+        if (hasCapture()) captures.addAll(legalMoves());
+        return captures;
+    }
+    
+    /** Second stage of a staged move generation: returns the legal moves
+     * without a capture, or an empty list if the player to move must capture.
+     * The moves are generated from the pieces array, without running the
+     * capture search of the full move generator.
+     * The returned list is a buffer that is reused by the next call.
+     * @return the legal moves without a capture
+     **/
+    public List<Move> getQuietMoves() {
+        quietMoves.clear();
+        if (movesValid) {
+            if (!hasCapture()) quietMoves.addAll(moves);
+            return quietMoves;
+        }
+        if (hasCapture()) return quietMoves;
+        int[] pieces = bs.pieces();
+        boolean white = isWhiteToMove();
+        int first = white ? 0 : 2, last = white ? 1 : 3;   // forward directions of men
+        for(int f=1; f<=50; f++) {
+            int piece = pieces[f];
+            if (!isOwn(piece, white)) continue;
+            boolean king = piece==WHITEKING || piece==BLACKKING;
+            for(int d=king ? 0 : first; d<=(king ? 3 : last); d++) {
+                int n = NEIGHBOURS[f][d];
+                while (n!=0 && pieces[n]==EMPTY) {
+                    quietMoves.add(new Move(new int[]{f, n}, NO_CAPTURES, NO_CAPTURES, piece, endPiece(piece, n)));
+                    n = king ? NEIGHBOURS[n][d] : 0;
+                }
+            }
+        }
+        return quietMoves;
+    }
+    
+    /** @return the piece that ends on field f after moving piece there without
+     * a capture: a man that reaches the opponent's back row is promoted.
+     **/
+    private static int endPiece(int piece, int f) {
+        if (piece==WHITEPIECE && f<=5) return WHITEKING;
+        if (piece==BLACKPIECE && f>45) return BLACKKING;
+        return piece;
+    }
+    
+    /** @return whether the player to move has at least one legal move.
+     * Stops at the first move found, without generating Move objects.
+     **/
+    public boolean hasAnyMove() {
+        if (movesValid) return !moves.isEmpty();
+        int[] pieces = bs.pieces();
+        boolean white = isWhiteToMove();
+        int first = white ? 0 : 2, last = white ? 1 : 3;   // forward directions of men
+        for(int f=1; f<=50; f++) {
+            int piece = pieces[f];
+            if (!isOwn(piece, white)) continue;
+            boolean king = piece==WHITEKING || piece==BLACKKING;
+            for(int d=king ? 0 : first; d<=(king ? 3 : last); d++) {
+                int n = NEIGHBOURS[f][d];
+                if (n!=0 && pieces[n]==EMPTY) return true;
+            }
+        }
+        return hasCapture();
+    }
+    
+    /** @return whether the player to move can capture, i.e. whether the legal
+     * moves are captures. Stops at the first capture found, without generating
+     * Move objects.
+     **/
+    public boolean hasCapture() {
+        if (movesValid) return !moves.isEmpty() && moves.get(0).isCapture();
+        int[] pieces = bs.pieces();
+        boolean white = isWhiteToMove();
+        for(int f=1; f<=50; f++) {
+            int piece = pieces[f];
+            if (!isOwn(piece, white)) continue;
+            boolean king = piece==WHITEKING || piece==BLACKKING;
+            for(int d=0; d<4; d++) {
+                int n = NEIGHBOURS[f][d];
+                if (king) {     // kings fly over empty fields
+                    while (n!=0 && pieces[n]==EMPTY) n = NEIGHBOURS[n][d];
+                }
+                if (n==0 || !isOwn(pieces[n], !white)) continue;
+                int behind = NEIGHBOURS[n][d];
+                if (behind!=0 && pieces[behind]==EMPTY) return true;
+            }
+        }
+        return false;
+    }
+    
+    /** @return the number of legal moves of the player to move. Moves without
+     * a capture are counted without generating Move objects; captures (which
+     * are subject to the majority rule) are generated.
+     **/
+    @Override
+    public int moveCount() {
+        if (movesValid || hasCapture()) return legalMoves().size();
+        int[] pieces = bs.pieces();
+        boolean white = isWhiteToMove();
+        int first = white ? 0 : 2, last = white ? 1 : 3;   // forward directions of men
+        int count = 0;
+        for(int f=1; f<=50; f++) {
+            int piece = pieces[f];
+            if (!isOwn(piece, white)) continue;
+            boolean king = piece==WHITEKING || piece==BLACKKING;
+            for(int d=king ? 0 : first; d<=(king ? 3 : last); d++) {
+                int n = NEIGHBOURS[f][d];
+                while (n!=0 && pieces[n]==EMPTY) {
+                    count++;
+                    n = king ? NEIGHBOURS[n][d] : 0;
+                }
+            }
+        }
+        return count;
+    }
+    
+    /** @return whether piece belongs to the white (or black) player. **/
+    private static boolean isOwn(int piece, boolean white) {
+        return white ? piece==WHITEPIECE || piece==WHITEKING
+                     : piece==BLACKPIECE || piece==BLACKKING;
     }
 
     /**
@@ -114,8 +348,11 @@ public class DraughtsState implements GameState<Move> {
      */
     @Override
     public void doMove(Move m) {
-        moves = null;      // invalidate moves
+        movesValid = false;     // invalidate moves
+        updateFeatures(m, -1);
+        hashKey ^= BLACK_TO_MOVE;
         bs.moveForward(m);
+        if (VERIFY_HASH_KEY) verifyHashKey();
     }
 
     /**
@@ -124,8 +361,93 @@ public class DraughtsState implements GameState<Move> {
      */
     @Override
     public void undoMove(Move m) {
-        moves=null;             // invalidate cached moves
+        movesValid = false;     // invalidate cached moves
+        updateFeatures(m, 1);
+        hashKey ^= BLACK_TO_MOVE;
         bs.moveBackward(m);
+        if (VERIFY_HASH_KEY) verifyHashKey();
+    }
+    
+    /** does the move with the given encoding (see MoveCodec) directly on the
+     * pieces: the moving and the captured pieces are read from the board, so
+     * no moves are generated and no Move is created. Legality is not checked,
+     * apart from the pieces being there.
+     * @param code encoding of a legal move
+     * @return the piece signature of the move (see MoveCodec), needed by
+     * undoMove(long, long) to take it back
+     * @throws IllegalArgumentException if the begin field does not hold a
+     * piece of the player to move, the end field is occupied or a captured
+     * field does not hold a piece of the opponent
+     **/
+    public long doMove(long code) {
+        long signature = signature(code);
+        movesValid = false;     // invalidate cached moves
+        int[] pieces = bs.pieces();
+        int begin = MoveCodec.beginField(code), end = MoveCodec.endField(code);
+        int beginPiece = (int) signature & 7, endPiece = (int) (signature >>> 3) & 7;
+        update(begin, beginPiece, -1);
+        pieces[begin] = EMPTY;
+        for(long fields = MoveCodec.capturedFields(code); fields!=0; fields &= fields - 1) {
+            int f = Long.numberOfTrailingZeros(fields) + 1;
+            update(f, pieces[f], -1);
+            pieces[f] = EMPTY;
+        }
+        update(end, endPiece, 1);
+        pieces[end] = endPiece;
+        hashKey ^= BLACK_TO_MOVE;
+        bs.switchPlayer();
+        if (VERIFY_HASH_KEY) verifyHashKey();
+        return signature;
+    }
+    
+    /** takes back the move with the given encoding and piece signature, as
+     * returned by doMove(long); it must be the last move done in this state.
+     * Like doMove(long), this does not create a Move.
+     * @param code encoding of the move
+     * @param signature piece signature of the move
+     **/
+    public void undoMove(long code, long signature) {
+        movesValid = false;     // invalidate cached moves
+        int[] pieces = bs.pieces();
+        int begin = MoveCodec.beginField(code), end = MoveCodec.endField(code);
+        int beginPiece = (int) signature & 7, endPiece = (int) (signature >>> 3) & 7;
+        boolean white = beginPiece==WHITEPIECE || beginPiece==WHITEKING;
+        long kings = signature >>> 6;
+        update(end, endPiece, -1);
+        pieces[end] = EMPTY;
+        for(long fields = MoveCodec.capturedFields(code); fields!=0; fields &= fields - 1) {
+            int f = Long.numberOfTrailingZeros(fields) + 1;
+            boolean king = (kings >>> (f - 1) & 1) != 0;
+            int piece = white ? (king ? BLACKKING : BLACKPIECE) : (king ? WHITEKING : WHITEPIECE);
+            update(f, piece, 1);
+            pieces[f] = piece;
+        }
+        update(begin, beginPiece, 1);
+        pieces[begin] = beginPiece;
+        hashKey ^= BLACK_TO_MOVE;
+        bs.switchPlayer();
+        if (VERIFY_HASH_KEY) verifyHashKey();
+    }
+    
+    /** @return the piece signature (see MoveCodec) of the encoded move in this state **/
+    private long signature(long code) {
+        int[] pieces = bs.pieces();
+        int begin = MoveCodec.beginField(code), end = MoveCodec.endField(code);
+        boolean white = isWhiteToMove();
+        if (begin<1 || begin>50 || !isOwn(pieces[begin], white)
+            || end<1 || end>50 || (end!=begin && pieces[end]!=EMPTY)) {
+            throw new IllegalArgumentException("not a move in this state: "+Long.toHexString(code));
+        }
+        long kings = 0;
+        for(long fields = MoveCodec.capturedFields(code); fields!=0; fields &= fields - 1) {
+            int f = Long.numberOfTrailingZeros(fields) + 1;
+            if (f>50 || !isOwn(pieces[f], !white)) {
+                throw new IllegalArgumentException("not a move in this state: "+Long.toHexString(code));
+            }
+            if (Draughts.isKing(pieces[f])) kings |= 1L << (f - 1);
+        }
+        int piece = pieces[begin];
+        return piece | endPiece(piece, end) << 3 | kings << 6;
     }
     
     /**
@@ -185,10 +507,275 @@ public class DraughtsState implements GameState<Move> {
      */
     @Override
     public void reset() {
-        moves=null;       // invalidate cached moves
+        movesValid = false;     // invalidate cached moves
         bs.setBegin();
+        computeFeatures();
+    }
+    
+    /** @return the Zobrist hash key of this state; updated incrementally, so
+     * this takes constant time.
+     **/
+    @Override
+    public long hashKey() {
+        return hashKey;
+    }
+    
+    /** @return the Zobrist hash key of this state, computed from scratch. **/
+    public long computeHashKey() {
+        long key = isWhiteToMove() ? 0 : BLACK_TO_MOVE;
+        int[] pieces = bs.pieces();
+        for(int f=1; f<=50; f++) {
+            if (pieces[f]>=WHITEPIECE && pieces[f]<=BLACKKING) key ^= PIECE_KEYS[pieces[f]][f];
+        }
+        return key;
+    }
+    
+    /** throws an IllegalStateException if the incrementally updated hash key
+     * differs from the key computed from scratch.
+     **/
+    private void verifyHashKey() {
+        if (hashKey!=computeHashKey()) {
+            throw new IllegalStateException("hash key out of sync in\n"+this);
+        }
+    }
+    
+    /** @return number of pieces of the given kind on the board.
+     * @param piece one of {WHITEPIECE,BLACKPIECE,WHITEKING,BLACKKING}
+     **/
+    public int getPieceCount(int piece) {
+        return pieceCount[piece];
+    }
+    
+    /** @return the tempi of the men of one player: the sum over all its men of
+     * the row they are on, counted from the player's own back row (which is 1).
+     * @param white whether to count the white or the black men
+     **/
+    public int getTempi(boolean white) {
+        return white ? whiteTempi : blackTempi;
+    }
+    
+    /** @return number of pieces (men or kings) of one player on its own back row.
+     * @param white whether to count the white or the black pieces
+     **/
+    public int getBaselineCount(boolean white) {
+        return white ? whiteBaseline : blackBaseline;
+    }
+    
+    /** @return number of pieces of one player that are not on the side edges
+     * of the board, i.e. not in column 0 (fields 6, 16, ..., 46) or column 9
+     * (fields 5, 15, ..., 45).
+     * @param white whether to count the white or the black pieces
+     **/
+    public int getCenterCount(boolean white) {
+        return white ? whiteCenter : blackCenter;
+    }
+    
+    /** recomputes all evaluation features and the hash key from the pieces on the board. **/
+    private void computeFeatures() {
+        hashKey = isWhiteToMove() ? 0 : BLACK_TO_MOVE;
+        Arrays.fill(pieceCount, 0);
+        whiteTempi = blackTempi = 0;
+        whiteBaseline = blackBaseline = 0;
+        whiteCenter = blackCenter = 0;
+        for(int f=1; f<=50; f++) {
+            update(f, bs.getPiece(f), 1);
+        }
+    }
+    
+    /** updates the evaluation features for move m: the pieces of m are
+     * removed from (sign=-1) or put back on (sign=1) their begin and captured fields,
+     * and the other way around on the end field.
+     **/
+    private void updateFeatures(Move m, int sign) {
+        update(m.getBeginField(), m.getBeginPiece(), sign);
+        for(int i=0; i<m.getCaptureCount(); i++) {
+            update(m.getCapturedField(i), m.getCapturedPiece(i), sign);
+        }
+        update(m.getEndField(), m.getEndPiece(), -sign);
+    }
+    
+    /** adds (sign=1) or removes (sign=-1) piece on field f to the evaluation
+     * features and the hash key.
+     **/
+    private void update(int f, int piece, int sign) {
+        if (piece<WHITEPIECE || piece>BLACKKING) return;
+        hashKey ^= PIECE_KEYS[piece][f];
+        pieceCount[piece] += sign;
+        boolean white = piece==WHITEPIECE || piece==WHITEKING;
+        int row = 1 + (f-1)/5;  // 1..10, from top to bottom
+        int column = 2*((f-1)%5) + (row%2==1 ? 1 : 0);  // 0..9, as in NEIGHBOURS
+        boolean center = column!=0 && column!=9;
+        if (white) {
+            if (piece==WHITEPIECE) whiteTempi += sign*(11-row);
+            if (row==10) whiteBaseline += sign;
+            if (center) whiteCenter += sign;
+        } else {
+            if (piece==BLACKPIECE) blackTempi += sign*row;
+            if (row==1) blackBaseline += sign;
+            if (center) blackCenter += sign;
+        }
     }
 
+    /** makes this state a copy of ds, without allocating anything: the pieces
+     * are copied with a single array copy and the evaluation features are
+     * copied instead of recomputed. Intended for code that reuses state objects.
+     * @param ds the state to copy
+     **/
+    public void copyFrom(DraughtsState ds) {
+        movesValid = false;     // invalidate cached moves
+        System.arraycopy(ds.bs.pieces(), 0, bs.pieces(), 0, bs.pieces().length);
+        bs.setWhiteToMove(ds.bs.isWhiteToMove());
+        copyFeatures(ds);
+    }
+    
+    /** @return a state with the position described by a FEN string.
+     * @param fen FEN string, see setFEN
+     * @throws IllegalArgumentException if fen is not a valid FEN string
+     **/
+    public static DraughtsState fromFEN(CharSequence fen) {
+        DraughtsState ds = new DraughtsState();
+        ds.setFEN(fen);
+        return ds;
+    }
+    
+    /** sets this state to the position described by a FEN string, e.g.
+     * "W:W31,32,K45:B1,2": the player to move, followed by the white and the
+     * black pieces, with kings prefixed by K. Ranges of fields (W31-35), 
+     * a trailing period and spaces between the tokens are accepted as well.
+     * @param fen FEN string
+     * @throws IllegalArgumentException if fen is not a valid FEN string;
+     * this state is not changed in that case.
+     **/
+    public void setFEN(CharSequence fen) {
+        setFEN(fen, 0, fen.length());
+    }
+    
+    /** sets this state to the position described by fen[start..end), without
+     * creating any objects (unless fen is invalid).
+     * @see DraughtsState#setFEN(CharSequence)
+     **/
+    public void setFEN(CharSequence fen, int start, int end) {
+        int[] pieces = FEN_PIECES.get();
+        Arrays.fill(pieces, EMPTY);
+        int i = skipSpaces(fen, start, end);
+        if (i==end) throw fenError(fen, start, end, "empty");
+        boolean white;
+        switch (fen.charAt(i++)) {
+            case 'W': case 'w': white = true; break;
+            case 'B': case 'b': white = false; break;
+            default: throw fenError(fen, start, end, "W or B to move expected");
+        }
+        boolean whiteDone = false, blackDone = false;
+        i = skipSpaces(fen, i, end);
+        while (i<end && fen.charAt(i)==':') {
+            i = skipSpaces(fen, i+1, end);
+            char color = i<end ? fen.charAt(i++) : ' ';
+            int man, king;
+            if ((color=='W' || color=='w') && !whiteDone) {
+                man = WHITEPIECE; king = WHITEKING; whiteDone = true;
+            } else if ((color=='B' || color=='b') && !blackDone) {
+                man = BLACKPIECE; king = BLACKKING; blackDone = true;
+            } else throw fenError(fen, start, end, "W or B pieces expected");
+            
+            // comma separated fields, with an optional K and an optional range
+            i = skipSpaces(fen, i, end);
+            boolean more = i<end && fen.charAt(i)!=':' && fen.charAt(i)!='.';
+            while (more) {
+                int piece = man;
+                if (fen.charAt(i)=='K' || fen.charAt(i)=='k') {
+                    piece = king;
+                    i = skipSpaces(fen, i+1, end);
+                }
+                int from = 0, to;
+                for(; from<=50 && isDigit(fen, i, end); i++) from = 10*from + fen.charAt(i) - '0';
+                to = from;
+                i = skipSpaces(fen, i, end);
+                if (i<end && fen.charAt(i)=='-') {
+                    i = skipSpaces(fen, i+1, end);
+                    for(to=0; to<=50 && isDigit(fen, i, end); i++) to = 10*to + fen.charAt(i) - '0';
+                    i = skipSpaces(fen, i, end);
+                }
+                if (from<1 || to>50 || from>to) throw fenError(fen, start, end, "invalid field");
+                for(int f=from; f<=to; f++) {
+                    if (pieces[f]!=EMPTY) throw fenError(fen, start, end, "field "+f+" occurs twice");
+                    pieces[f] = piece;
+                }
+                more = i<end && fen.charAt(i)==',';
+                if (more) i = skipSpaces(fen, i+1, end);
+            }
+        }
+        if (i<end && fen.charAt(i)=='.') i = skipSpaces(fen, i+1, end);
+        if (i!=end) throw fenError(fen, start, end, "unexpected '"+fen.charAt(i)+"'");
+        
+        movesValid = false;     // invalidate cached moves
+        System.arraycopy(pieces, 1, bs.pieces(), 1, 50);
+        bs.setWhiteToMove(white);
+        computeFeatures();
+    }
+    
+    /** @return index of the first non-space character in fen[i..end), or end **/
+    private static int skipSpaces(CharSequence fen, int i, int end) {
+        while (i<end && fen.charAt(i)==' ') i++;
+        return i;
+    }
+    
+    /** @return whether or not i &lt; end and fen[i] is a digit 0-9 **/
+    private static boolean isDigit(CharSequence fen, int i, int end) {
+        return i<end && fen.charAt(i)>='0' && fen.charAt(i)<='9';
+    }
+    
+    private static IllegalArgumentException fenError(CharSequence fen, int start, int end, String reason) {
+        return new IllegalArgumentException("invalid FEN \""+fen.subSequence(start, end)+"\": "+reason);
+    }
+    
+    /** @return the FEN string of this state, e.g. "W:W31,32,K45:B1,2".
+     * @see DraughtsState#setFEN(CharSequence)
+     **/
+    public String toFEN() {
+        return appendFEN(new StringBuilder(160)).toString();
+    }
+    
+    /** appends the FEN string of this state to sb; intended for writing many
+     * positions with a single StringBuilder.
+     * @param sb string builder
+     * @return sb
+     **/
+    public StringBuilder appendFEN(StringBuilder sb) {
+        sb.append(isWhiteToMove() ? 'W' : 'B');
+        appendFENPieces(sb, 'W', WHITEPIECE, WHITEKING);
+        appendFENPieces(sb, 'B', BLACKPIECE, BLACKKING);
+        return sb;
+    }
+    
+    /** appends ":" + color + the comma separated fields with a man or a king. **/
+    private void appendFENPieces(StringBuilder sb, char color, int man, int king) {
+        sb.append(':').append(color);
+        int[] pieces = bs.pieces();
+        boolean first = true;
+        for(int f=1; f<=50; f++) {
+            if (pieces[f]!=man && pieces[f]!=king) continue;
+            if (!first) sb.append(',');
+            if (pieces[f]==king) sb.append('K');
+            sb.append(f);
+            first = false;
+        }
+    }
+    
+    /** copies the evaluation features and the hash key of ds. **/
+    private void copyFeatures(DraughtsState ds) {
+        System.arraycopy(ds.pieceCount, 0, pieceCount, 0, pieceCount.length);
+        whiteTempi = ds.whiteTempi;
+        blackTempi = ds.blackTempi;
+        whiteBaseline = ds.whiteBaseline;
+        blackBaseline = ds.blackBaseline;
+        whiteCenter = ds.whiteCenter;
+        blackCenter = ds.blackCenter;
+        hashKey = ds.hashKey;
+    }
+
+    /** @return a copy of this state; the board is copied, the move generator
+     * is shared and the evaluation features are copied instead of recomputed.
+     **/
     @Override
     public DraughtsState clone() {
         return new DraughtsState(this);
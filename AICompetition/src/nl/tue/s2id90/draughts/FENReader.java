@@ -0,0 +1,127 @@
+package nl.tue.s2id90.draughts;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * reads draughts positions from a file with one FEN string per line, see
+ * DraughtsState.setFEN. Empty lines are skipped.
+ * <p>
+ * The file is memory mapped (in chunks of at most 1 GB) and every line is
+ * parsed directly from the mapped bytes into a single DraughtsState, so
+ * reading does not create objects per position.
+ *
+ * @author Nimo Beeren & Maas van Apeldoorn
+ */
+public final class FENReader {
+    /** maximum number of bytes mapped at once. **/
+    private static final long CHUNK_SIZE = 1L << 30;
+
+    private FENReader() {}
+
+    /**
+     * calls action for every position in file. The state passed to action is
+     * reused for the next position: clone it to keep it.
+     * @param file   file with one FEN string per line
+     * @param action action to perform on every position
+     * @return the number of positions read
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line is not a valid FEN string;
+     * the message contains the line number
+     */
+    public static long forEach(Path file, Consumer<? super DraughtsState> action) throws IOException {
+        DraughtsState state = new DraughtsState();
+        Ascii text = new Ascii();
+        long count = 0, line = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for(long pos = 0; pos < size; ) {
+                long length = Math.min(CHUNK_SIZE, size - pos);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, pos, length);
+                int n = (int) length;
+                if (pos + length < size) {          // end the chunk after its last complete line
+                    while (n > 0 && buffer.get(n-1) != '\n') n--;
+                    if (n == 0) throw new IOException(file + ": line longer than " + CHUNK_SIZE + " bytes");
+                }
+                text.bytes = buffer;
+                for(int start = 0; start < n; ) {
+                    int end = start;
+                    while (end < n && buffer.get(end) != '\n') end++;
+                    line++;
+                    if (!isBlank(buffer, start, end)) {
+                        try {
+                            state.setFEN(text, start, end);
+                        } catch (IllegalArgumentException ex) {
+                            throw new IllegalArgumentException(file + ":" + line + ": " + ex.getMessage(), ex);
+                        }
+                        action.accept(state);
+                        count++;
+                    }
+                    start = end + 1;
+                }
+                pos += n;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param file file with one FEN string per line
+     * @return the positions in file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line is not a valid FEN string
+     * @see FENReader#forEach(Path, Consumer)
+     */
+    public static List<DraughtsState> load(Path file) throws IOException {
+        List<DraughtsState> states = new ArrayList<>();
+        forEach(file, state -> states.add(state.clone()));
+        return states;
+    }
+
+    /** @return whether or not bytes[start..end) contains only white space. **/
+    private static boolean isBlank(ByteBuffer bytes, int start, int end) {
+        for(int i = start; i < end; i++) {
+            if (bytes.get(i) > ' ') return false;
+        }
+        return true;
+    }
+
+    /**
+     * view of ASCII bytes as characters; a line feed, carriage return or tab
+     * is seen as a space, so that setFEN skips it.
+     */
+    private static final class Ascii implements CharSequence {
+        ByteBuffer bytes;
+
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        @Override
+        public char charAt(int i) {
+            char c = (char) (bytes.get(i) & 0xFF);
+            return c < ' ' ? ' ' : c;
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            byte[] b = new byte[end - start];
+            for(int i = start; i < end; i++) b[i - start] = (byte) charAt(i);
+            return new String(b, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package nl.tue.s2id90.draughts;
+
+import static nl.tue.s2id90.draughts.DraughtsState.BLACKKING;
+import static nl.tue.s2id90.draughts.DraughtsState.BLACKPIECE;
+import static nl.tue.s2id90.draughts.DraughtsState.WHITEKING;
+import static nl.tue.s2id90.draughts.DraughtsState.WHITEPIECE;
+import org10x10.dam.game.Move;
+
+/**
+ * Compact encoding of draughts moves in a long:
+ * <blockquote><pre>
+ *  bits  0- 5  begin field
+ *  bits  6-11  end field
+ *  bits 12-61  captured fields, field f in bit 12 + f - 1
+ * </pre></blockquote>
+ * In a given position, the encoding identifies a legal move uniquely: two
+ * captures with the same begin field, end field and captured pieces are
+ * equal moves (see Move.equals). The lower 12 bits alone identify a move
+ * without a capture.
+ * <p>
+ * The encoding does not contain the pieces involved; these follow from the
+ * position before the move. The piece signature of a move holds them, so that
+ * an encoding and a signature together describe a move completely, see
+ * decode and MoveInterner.
+ *
+ * @author Nimo Beeren & Maas van Apeldoorn
+ */
+public final class MoveCodec {
+    private MoveCodec() {}
+
+    /**
+     * @param m a move
+     * @return the encoding of m
+     */
+    public static long encode(Move m) {
+        return encode(m.getBeginField(), m.getEndField(), capturedFields(m));
+    }
+
+    /**
+     * @param begin          begin field
+     * @param end            end field
+     * @param capturedFields captured fields, field f in bit f - 1
+     * @return the encoding of the move with the given fields
+     */
+    public static long encode(int begin, int end, long capturedFields) {
+        return begin | end << 6 | capturedFields << 12;
+    }
+
+    /**
+     * @param m a move
+     * @return the piece signature of m: begin piece | end piece &lt;&lt; 3 |
+     * captured kings &lt;&lt; 6, with a captured king on field f in bit 6 + f - 1
+     */
+    public static long signature(Move m) {
+        long kings = 0;
+        for(int i=0; i<m.getCaptureCount(); i++) {
+            if (Draughts.isKing(m.getCapturedPiece(i))) kings |= 1L << (m.getCapturedField(i) - 1);
+        }
+        return m.getBeginPiece() | m.getEndPiece() << 3 | kings << 6;
+    }
+
+    /**
+     * @param code      encoding of a move
+     * @param signature piece signature of the same move
+     * @return a new Move with the given encoding and signature; its path only
+     * holds the begin and the end field.
+     */
+    public static Move decode(long code, long signature) {
+        int beginPiece = (int) signature & 7, endPiece = (int) (signature >>> 3) & 7;
+        boolean white = Draughts.isWhite(beginPiece);
+        long fields = capturedFields(code), kings = signature >>> 6;
+        int n = Long.bitCount(fields);
+        int[] capturedField = new int[n], capturedPiece = new int[n];
+        for(int i=0; i<n; i++, fields &= fields - 1) {
+            int f = Long.numberOfTrailingZeros(fields) + 1;
+            boolean king = (kings >>> (f - 1) & 1) != 0;
+            capturedField[i] = f;
+            capturedPiece[i] = white ? (king ? BLACKKING : BLACKPIECE) : (king ? WHITEKING : WHITEPIECE);
+        }
+        return new Move(new int[]{beginField(code), endField(code)}, capturedPiece, capturedField, beginPiece, endPiece);
+    }
+
+    /** @return begin field of an encoded move **/
+    public static int beginField(long code) {
+        return (int) code & 0x3F;
+    }
+
+    /** @return end field of an encoded move **/
+    public static int endField(long code) {
+        return (int) (code >>> 6) & 0x3F;
+    }
+
+    /** @return captured fields of an encoded move, field f in bit f - 1 **/
+    public static long capturedFields(long code) {
+        return code >>> 12;
+    }
+
+    /** @return number of pieces captured by an encoded move **/
+    public static int captureCount(long code) {
+        return Long.bitCount(code >>> 12);
+    }
+
+    /** @return captured fields of m, field f in bit f - 1 **/
+    private static long capturedFields(Move m) {
+        long fields = 0;
+        for(int i=0; i<m.getCaptureCount(); i++) {
+            fields |= 1L << (m.getCapturedField(i) - 1);
+        }
+        return fields;
+    }
+}
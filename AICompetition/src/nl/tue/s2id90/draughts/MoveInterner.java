@@ -0,0 +1,99 @@
+package nl.tue.s2id90.draughts;
+
+import java.util.ArrayList;
+import java.util.List;
+import org10x10.dam.game.Move;
+
+/**
+ * Table of canonical Move instances: moves with the same encoding and piece
+ * signature (see MoveCodec) are mapped to a single instance. Storing only
+ * canonical instances saves memory when many games are kept, e.g. the results
+ * of a tournament, since the same moves are played over and over again.
+ * <p>
+ * The table uses open addressing on primitive arrays, so a lookup of an
+ * existing move does not allocate. All methods are synchronized; use
+ * internAll to intern a whole game with a single lock.
+ *
+ * @author Nimo Beeren & Maas van Apeldoorn
+ * @param <M> Move
+ */
+public class MoveInterner<M extends Move> {
+    private long[] codes = new long[1024];
+    private long[] signatures = new long[1024];
+    private int[] slots = new int[1024];            // 1 + index in canonical, 0 if free
+    private final List<M> canonical = new ArrayList<>();
+
+    /**
+     * @param m a move
+     * @return the canonical instance of m: the first interned move with the
+     * same encoding and piece signature as m, or m itself if there is none.
+     */
+    public synchronized M intern(M m) {
+        return internUnlocked(m);
+    }
+
+    /**
+     * replaces every move in moves by its canonical instance, see intern.
+     * @param moves list of moves, e.g. the moves of a game
+     */
+    public synchronized void internAll(List<M> moves) {
+        for(int i=0; i<moves.size(); i++) {
+            moves.set(i, internUnlocked(moves.get(i)));
+        }
+    }
+
+    /**
+     * @param code      encoding of a move
+     * @param signature piece signature of a move
+     * @return the canonical move with the given encoding and signature, or
+     * null if no such move has been interned
+     */
+    public synchronized M get(long code, long signature) {
+        int slot = slots[find(code, signature)];
+        return slot==0 ? null : canonical.get(slot - 1);
+    }
+
+    /** @return number of canonical moves in this table **/
+    public synchronized int size() {
+        return canonical.size();
+    }
+
+    private M internUnlocked(M m) {
+        long code = MoveCodec.encode(m), signature = MoveCodec.signature(m);
+        int i = find(code, signature);
+        if (slots[i]!=0) return canonical.get(slots[i] - 1);
+        canonical.add(m);
+        codes[i] = code;
+        signatures[i] = signature;
+        slots[i] = canonical.size();
+        if (canonical.size() > slots.length/2) grow();
+        return m;
+    }
+
+    /** @return index of the slot of the given move, or of the free slot where it belongs **/
+    private int find(long code, long signature) {
+        int mask = slots.length - 1;
+        long h = (code ^ signature * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+        int i = (int) (h >>> 40) & mask;
+        while (slots[i]!=0 && (codes[i]!=code || signatures[i]!=signature)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /** doubles the capacity of the table. **/
+    private void grow() {
+        long[] oldCodes = codes, oldSignatures = signatures;
+        int[] oldSlots = slots;
+        codes = new long[2*oldSlots.length];
+        signatures = new long[2*oldSlots.length];
+        slots = new int[2*oldSlots.length];
+        for(int j=0; j<oldSlots.length; j++) {
+            if (oldSlots[j]==0) continue;
+            int i = find(oldCodes[j], oldSignatures[j]);
+            codes[i] = oldCodes[j];
+            signatures[i] = oldSignatures[j];
+            slots[i] = oldSlots[j];
+        }
+    }
+}
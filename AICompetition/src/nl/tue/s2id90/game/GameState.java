@@ -1,6 +1,7 @@
 package nl.tue.s2id90.game;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * class that keeps the state information of a Game.
@@ -13,6 +14,34 @@ public interface GameState<Move> {
      * @return a list of valid moves in this state.
      */
     List<Move> getMoves();
+    
+    /**
+     * @return the number of valid moves in this state.
+     */
+    default int moveCount() {
+        return getMoves().size();
+    }
+    
+    /**
+     * Returns a valid move without creating a list of moves (if the
+     * implementation supports it). Indices refer to the order of getMoves(),
+     * and are only valid until the state is changed.
+     * @param i index of the move, 0 &lt;= i &lt; moveCount()
+     * @return the i-th valid move in this state.
+     */
+    default Move moveAt(int i) {
+        return getMoves().get(i);
+    }
+    
+    /**
+     * calls action for every valid move in this state, without creating a
+     * list of moves (if the implementation supports it).
+     * action must not change this state.
+     * @param action action to perform on every valid move
+     */
+    default void forEachMove(Consumer<? super Move> action) {
+        getMoves().forEach(action);
+    }
 
     /**
      * @return whether or not there are any valid moves in this state
@@ -42,6 +71,13 @@ public interface GameState<Move> {
      */
     void reset();  
     
+    /**
+     * @return a hash key that identifies the position in this state, including
+     * the player to move. Equal positions have equal keys; different positions
+     * have different keys with high probability.
+     */
+    long hashKey();
+    
     /**
      * clones this state.
      * @return a clone of this state.
@@ -0,0 +1,109 @@
+package nl.tue.s2id90.game;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * set of the valid moves in a single game state, used to check moves proposed
+ * by players. The moves are stored as long encodings in an open addressing
+ * table, so a check takes constant time and does not call Move.equals.
+ * <p>
+ * The encoder must map moves that are equal in a state to the same encoding,
+ * and moves that are different in a state to different encodings, e.g.
+ * MoveCodec::encode for draughts.
+ * <p>
+ * An object is meant to be reused for every position of a game: set(state)
+ * does not allocate, unless a state has more moves than ever before.
+ * @author Nimo Beeren & Maas van Apeldoorn
+ * @param <Move>
+ */
+public class LegalMoves<Move> {
+    private final ToLongFunction<? super Move> encoder;
+    private final Consumer<Move> adder = this::add;
+    private long[] codes = new long[64];
+    private int[] stamps = new int[64];  // slot i is in use iff stamps[i]==stamp
+    private int stamp = 1;
+    private int size = 0;
+
+    /**
+     * @param encoder maps a move to a long that identifies it within a state
+     */
+    public LegalMoves(ToLongFunction<? super Move> encoder) {
+        this.encoder = encoder;
+    }
+
+    /**
+     * replaces the contents of this set by the valid moves of state.
+     * @param state a game state
+     */
+    public void set(GameState<Move> state) {
+        clear();
+        state.forEachMove(adder);
+    }
+
+    /**
+     * @param m a move, may be null
+     * @return whether or not m is a valid move in the state of the last set.
+     */
+    public boolean contains(Move m) {
+        return m!=null && stamps[slot(encoder.applyAsLong(m))]==stamp;
+    }
+
+    /**
+     * @return whether or not the state of the last set had no valid moves,
+     * i.e., whether or not it was an end state.
+     */
+    public boolean isEmpty() {
+        return size==0;
+    }
+
+    /**
+     * @return the number of valid moves in the state of the last set.
+     */
+    public int size() {
+        return size;
+    }
+
+    /** empties this set in constant time, by starting a new stamp. **/
+    private void clear() {
+        size = 0;
+        if (++stamp==0) {        // wrapped around: old stamps become ambiguous
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+    }
+
+    private void add(Move m) {
+        long code = encoder.applyAsLong(m);
+        int i = slot(code);
+        if (stamps[i]==stamp) return;   // duplicate
+        codes[i] = code;
+        stamps[i] = stamp;
+        if (++size > codes.length/2) grow();
+    }
+
+    /** @return the slot of code, or the empty slot where it belongs. **/
+    private int slot(long code) {
+        int mask = codes.length - 1;
+        int i = (int) ((code * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        while (stamps[i]==stamp && codes[i]!=code) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /** doubles the capacity of this set. **/
+    private void grow() {
+        long[] oldCodes = codes;
+        int[] oldStamps = stamps;
+        codes = new long[2*oldCodes.length];
+        stamps = new int[2*oldCodes.length];
+        for(int j=0; j<oldCodes.length; j++) {
+            if (oldStamps[j]!=stamp) continue;
+            int i = slot(oldCodes[j]);
+            codes[i] = oldCodes[j];
+            stamps[i] = stamp;
+        }
+    }
+}
@@ -42,9 +42,12 @@ import nl.tue.s2id90.contest.util.TimedSearchTask;
 import nl.tue.s2id90.draughts.DraughtsPlayerProvider;
 import nl.tue.s2id90.draughts.DraughtsPlugin;
 import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.MoveCodec;
+import nl.tue.s2id90.draughts.MoveInterner;
 import nl.tue.s2id90.draughts.player.DraughtsPlayer;
 import nl.tue.s2id90.draughts.player.HumanPlayer;
 import nl.tue.s2id90.game.GameState;
+import nl.tue.s2id90.game.LegalMoves;
 import nl.tue.s2id90.game.Player;
 import org10x10.dam.game.Move;
 
@@ -68,6 +71,8 @@ public class OfflineTournament<P extends Player<M,S>, PP extends PlayerProvider<
     
     Supplier<S> constructState;    // method to create initial state
     
+    final MoveInterner<M> interner = new MoveInterner<>(); // shares equal moves among all games
+    
     public static void main(String[] args) {
         OfflineTournament<DraughtsPlayer,DraughtsPlayerProvider,Move,DraughtsState> ot = new OfflineTournament<>();
         ot.go(args, DraughtsState::new);
@@ -143,34 +148,46 @@ public class OfflineTournament<P extends Player<M,S>, PP extends PlayerProvider<
     private Result<P,M> playMatch(P p0, P p1, int maxMove, int maxTimeinMS) {
         S state = constructState.get();
         List<M> moves = new ArrayList<>();
+        LegalMoves<M> legalMoves = new LegalMoves<>(MoveCodec::encode);
         index++;
         int moveCount=0;
-        while (moveCount<maxMove && !state.isEndState()) {
+        legalMoves.set(state);      // valid moves of the current position
+        while (moveCount<maxMove && !legalMoves.isEmpty()) {
             // check for illegal moves
             P player = (state.isWhiteToMove()?p0:p1);
             M move = getComputerMove(player, state, maxTimeinMS);
-            if (move==null||!state.getMoves().contains(move)) { // illegal move
+            if (!legalMoves.contains(move)) { // illegal move
                 // player who tried to make the illegal move, looses the game
                 return state.isWhiteToMove()
-                        ? Result.of(index,p0, p1, moves, 0, 2, false)
-                        : Result.of(index,p0, p1, moves, 2, 0, false);
+                        ? result(p0, p1, moves, 0, 2, false)
+                        : result(p0, p1, moves, 2, 0, false);
             }
             
             moves.add(move);
             // do the move if it is legal.
             state.doMove(move);
+            legalMoves.set(state);
             moveCount++;
         }
         
-        if (state.isEndState()) { // player who is to move, looses the game
+        if (legalMoves.isEmpty()) { // player who is to move, looses the game
                 return state.isWhiteToMove()
-                        ? Result.of(index,p0, p1, moves, 0, 2, false)
-                        : Result.of(index,p0, p1, moves, 2, 0, false);
+                        ? result(p0, p1, moves, 0, 2, false)
+                        : result(p0, p1, moves, 2, 0, false);
         } else {
-                return  Result.of(index,p0, p1, moves, 1, 1, true);
+                return  result(p0, p1, moves, 1, 1, true);
         }
     }
     
+    /**
+     * @return the result of a finished game; its moves are replaced by their
+     * canonical instances, with a single lock for the whole game.
+     */
+    private Result<P,M> result(P p0, P p1, List<M> moves, int r0, int r1, boolean maxMoveReached) {
+        interner.internAll(moves);
+        return Result.of(index, p0, p1, moves, r0, r1, maxMoveReached);
+    }
+    
     private M getComputerMove(final Player player, final S gs, final int maxTime) {
         Semaphore flag = new Semaphore(0);
         SearchTask<M, Long, S> searchTask;
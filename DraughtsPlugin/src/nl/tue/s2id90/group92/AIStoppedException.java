@@ -1,7 +1,18 @@
 package nl.tue.s2id90.group92;
 
 /**
+ * Thrown to abort a search. Since a search may be aborted many times, a single
+ * preallocated instance without a stack trace is used.
+ *
  * @author huub
  */
 public class AIStoppedException extends Exception {
+    /**
+     * The instance that is thrown to abort a search.
+     */
+    public static final AIStoppedException INSTANCE = new AIStoppedException();
+
+    private AIStoppedException() {
+        super("search stopped", null, false, false);
+    }
 }
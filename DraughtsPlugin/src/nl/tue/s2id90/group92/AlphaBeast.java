@@ -4,11 +4,13 @@ import nl.tue.s2id90.draughts.DraughtsState;
 import nl.tue.s2id90.draughts.player.DraughtsPlayer;
 import org10x10.dam.game.Move;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-
-import static java.lang.Integer.MAX_VALUE;
-import static java.lang.Integer.MIN_VALUE;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Implementation of the DraughtsPlayer interface.
@@ -16,541 +18,406 @@ import static java.lang.Integer.MIN_VALUE;
  * @author Nimo Beeren & Maas van Apeldoorn
  */
 public class AlphaBeast extends DraughtsPlayer {
-    private int bestValue = 0;
-    private int maxSearchDepth;
-
     /**
-     * Boolean that indicates that the GUI asked the player to stop thinking.
+     * log2 of the number of transposition table entries (16 bytes each).
      */
-    private boolean stopped;
-
-    AlphaBeast(int maxSearchDepth) {
-        super("philosoraptor.jpg");
-        this.maxSearchDepth = maxSearchDepth;
-    }
+    private static final int TT_SIZE_BITS = 20;
 
-    @Override
-    public Move getMove(DraughtsState s) {
-        Move bestMove = null;
-        bestValue = 0;
-        DraughtsNode node = new DraughtsNode(s);    // the root of the search tree
-        try {
-            for (int depth = 1; depth <= maxSearchDepth; depth++) {
-                // compute bestMove and bestValue in a call to alphaBeta
-                bestValue = alphaBeta(node, MIN_VALUE, MAX_VALUE, depth);
+    /**
+     * log2 of the number of evaluation cache entries (16 bytes each).
+     */
+    private static final int EVAL_CACHE_SIZE_BITS = 18;
 
-                // store the bestMove found up until now
-                // NB this is not done in case of an AIStoppedException in alphaBeta()
-                bestMove = node.getBestMove();
+    /**
+     * Whether or not the threads of a multi-threaded search share a single
+     * evaluation cache.
+     */
+    private static final boolean SHARE_EVAL_CACHE = true;
 
-                // print the results for debugging reasons
-                System.err.format(
-                        "%s: depth = %2d, best move = %5s, value = %d\n",
-                        this.getClass().getSimpleName(), depth, bestMove, bestValue
-                );
-            }
-        } catch (AIStoppedException ex) {  /* nothing to do */ }
+    /**
+     * Maximum time spent pondering on the opponent's time, in milliseconds.
+     */
+    private static final int MAX_PONDER_TIME = 10000;
 
-        if (bestMove == null) {
-            System.err.println("no valid move found!");
-            return getRandomValidMove(s);
-        } else {
-            return bestMove;
-        }
-    }
+    private int bestValue = 0;
+    private int maxSearchDepth;
 
     /**
-     * This method's return value is displayed in the AICompetition GUI.
-     *
-     * @return the value for the draughts state s as it is computed in a call to
-     * getMove(s).
+     * Transposition table, kept between moves so earlier results can be reused.
+     * Shared by all searchers of this player.
      */
-    @Override
-    public Integer getValue() {
-        return bestValue;
-    }
+    private final TranspositionTable tt;
 
     /**
-     * Tries to make alpha-beta search stop. Search should be implemented such that it
-     * throws an AIStoppedException when boolean stopped is set to true;
-     **/
-    @Override
-    public void stop() {
-        stopped = true;
-    }
+     * Cache of static evaluations. Shared with the helpers and the ponderer if
+     * SHARE_EVAL_CACHE is set.
+     */
+    private final EvalCache evalCache;
 
     /**
-     * Returns random valid move in state s, or null if no moves exist.
+     * The searcher of the main thread.
      */
-    private Move getRandomValidMove(DraughtsState s) {
-        List<Move> moves = s.getMoves();
-        Collections.shuffle(moves);
-        return moves.isEmpty() ? null : moves.get(0);
-    }
+    private final Searcher searcher;
 
     /**
-     * Implementation of alpha-beta that automatically chooses the white player
-     * as maximizing player and the black player as minimizing player.
-     *
-     * @param node  contains DraughtsState and has field to which the best move
-     *              can be assigned
-     * @param alpha the best value for the maximizing player
-     * @param beta  the best value for the minimizing player
-     * @param depth maximum recursion depth
-     * @return the computed value of this node
-     **/
-    private int alphaBeta(DraughtsNode node, int alpha, int beta, int depth)
-            throws AIStoppedException {
-        if (node.getState().isWhiteToMove()) {
-            return alphaBetaMax(node, alpha, beta, depth);
-        } else {
-            return alphaBetaMin(node, alpha, beta, depth);
-        }
-    }
+     * Helper searchers of a multi-threaded (Lazy SMP) search. Each helper runs
+     * its own iterative deepening on a copy of the state; the helpers only
+     * communicate with the main search through the shared transposition table.
+     */
+    private final Searcher[] helpers;
 
     /**
-     * Does an alpha-beta computation with the given alpha and beta where the
-     * player that is to move in node is the minimizing player.
-     *
-     * @param node  contains DraughtsState and has field to which the best move can be assigned
-     * @param alpha the best value for the maximizing player
-     * @param beta  the best value for the minimizing player
-     * @param depth maximum recursion depth
-     * @return the computed value of this node
-     * @throws AIStoppedException thrown whenever the boolean stopped has been set to true.
+     * Runs the searches of the helpers, null in a single-threaded search. Its
+     * threads are daemons, so they do not keep the program alive.
      */
-    private int alphaBetaMin(DraughtsNode node, int alpha, int beta, int depth)
-            throws AIStoppedException {
-        if (stopped) {
-            stopped = false;
-            throw new AIStoppedException();
-        }
-
-        DraughtsState state = node.getState();
-
-        if (depth <= 0) {
-            return evaluate(state);
-        }
+    private final ExecutorService helperPool;
 
-        List<Move> moves = state.getMoves();
+    /**
+     * Time (System.nanoTime) at which stop() was last called.
+     */
+    private volatile long stopRequestTime;
 
-        // Don't decrease depth if only one move is possible (flexible depth)
-        if (moves.size() == 1) {
-            depth++;
-        }
+    /**
+     * Decides when the iterative deepening stops.
+     */
+    private final TimeManager timeManager = new TimeManager();
 
-        while (!moves.isEmpty()) {
-            Move move = moves.get(0);
-            state.doMove(move);
-            DraughtsNode childNode = new DraughtsNode(state);
+    /**
+     * Searches the expected position after the opponent's reply while the
+     * opponent is thinking; null if pondering is disabled.
+     */
+    private Searcher ponderer;
 
-            int childValue = alphaBetaMax(childNode, alpha, beta, depth - 1);
+    /**
+     * Runs the search of the ponderer, null if pondering is disabled.
+     */
+    private ExecutorService ponderPool;
 
-            if (childValue < beta) {
-                beta = childValue;
-                node.setBestMove(move);
-            }
+    /**
+     * The running ponder search, null if the player is not pondering.
+     */
+    private Future<?> ponderSearch;
 
-            moves.remove(0);
-            state.undoMove(move);
+    /**
+     * Hash key of the position that is being pondered on.
+     */
+    private long ponderKey;
 
-            if (beta <= alpha) {
-                return alpha;
-            }
-        }
+    private int ponderHits;
+    private int ponderMisses;
 
-        return beta;
+    AlphaBeast(int maxSearchDepth) {
+        this(maxSearchDepth, 1);
     }
 
     /**
-     * Does an alpha-beta computation with the given alpha and beta where the
-     * player that is to move in node is the maximizing player.
+     * Creates a player that searches with the given number of threads.
      *
-     * @param node  contains DraughtsState and has field to which the best move can be assigned
-     * @param alpha the best value for the maximizing player
-     * @param beta  the best value for the minimizing player
-     * @param depth maximum recursion depth
-     * @return the computed value of this node
-     * @throws AIStoppedException thrown whenever the boolean stopped has been set to true.
+     * @param maxSearchDepth maximum depth of the iterative deepening
+     * @param threads        number of search threads, including the main thread
      */
-    private int alphaBetaMax(DraughtsNode node, int alpha, int beta, int depth)
-            throws AIStoppedException {
-        if (stopped) {
-            stopped = false;
-            throw new AIStoppedException();
-        }
-
-        DraughtsState state = node.getState();
-        if (depth <= 0) {
-            return evaluate(state);
-        }
-
-        List<Move> moves = state.getMoves();
-
-        // Don't decrease depth if only one move is possible (flexible depth)
-        if (moves.size() == 1) {
-            depth++;
+    AlphaBeast(int maxSearchDepth, int threads) {
+        super("philosoraptor.jpg");
+        this.maxSearchDepth = maxSearchDepth;
+        this.tt = new TranspositionTable(TT_SIZE_BITS);
+        this.evalCache = new EvalCache(EVAL_CACHE_SIZE_BITS);
+        this.searcher = new Searcher(maxSearchDepth, tt, evalCache);
+        this.helpers = new Searcher[Math.max(threads - 1, 0)];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new Searcher(maxSearchDepth, tt, helperEvalCache());
         }
+        this.helperPool = helpers.length == 0 ? null : Executors.newFixedThreadPool(helpers.length, r -> {
+            Thread thread = new Thread(r, "AlphaBeast helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
-        while (!moves.isEmpty()) {
-            Move move = moves.get(0);
-            state.doMove(move);
-            DraughtsNode childNode = new DraughtsNode(state);
-
-            int childValue = alphaBetaMin(childNode, alpha, beta, depth - 1);
-
-            if (childValue > alpha) {
-                alpha = childValue;
-                node.setBestMove(move);
-            }
-
-            moves.remove(0);
-            state.undoMove(move);
+    /**
+     * Returns the evaluation cache for a helper or the ponderer: a view on the
+     * cache of this player, or a cache of its own.
+     */
+    private EvalCache helperEvalCache() {
+        return SHARE_EVAL_CACHE ? evalCache.share() : new EvalCache(EVAL_CACHE_SIZE_BITS);
+    }
 
-            if (alpha >= beta) {
-                return beta;
-            }
+    /**
+     * Enables or disables pondering: searching on the opponent's time.
+     * Pondering is off by default; MyDraughtsPlugin offers a separate player
+     * that ponders. Nothing stops the ponderer when a game ends, so it may go
+     * on for up to MAX_PONDER_TIME (at most the time budget per move) and use
+     * a processor in the next game, e.g. in a tournament that plays several
+     * games at the same time.
+     *
+     * @param ponder whether or not to ponder
+     */
+    void setPonder(boolean ponder) {
+        if (ponder && ponderer == null) {
+            ponderer = new Searcher(maxSearchDepth, tt, helperEvalCache());
+            ponderPool = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "AlphaBeast ponderer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else if (!ponder && ponderer != null) {
+            stopPondering();
+            ponderPool.shutdown();
+            ponderer = null;
+            ponderPool = null;
         }
-
-        return alpha;
     }
 
     /**
-     * A method that evaluates the given state.
+     * @return the name of this player, which tells whether or not it ponders
      */
-    private int evaluate(DraughtsState state) {
-        int[] pieces = state.getPieces();
+    @Override
+    public String getName() {
+        return ponderer == null ? super.getName() : super.getName() + " (ponder)";
+    }
 
-        // If a player can make no moves, they lose
-        if (state.getMoves().isEmpty()) {
-            if (state.isWhiteToMove()) {
-                return MIN_VALUE;
+    @Override
+    public Move getMove(DraughtsState s) {
+        if (ponderSearch != null) {
+            stopPondering();
+            if (s.hashKey() == ponderKey) {
+                ponderHits++;
             } else {
-                return MAX_VALUE;
+                ponderMisses++;
             }
+            System.err.format("%s: ponder hits = %d, misses = %d\n",
+                    this.getClass().getSimpleName(), ponderHits, ponderMisses);
+        }
+
+        // search in a copy, since an aborted search leaves its state behind
+        // halfway the tree, and s is still needed afterwards
+        DraughtsState root = searcher.getState();
+        root.copyFrom(s);
+        timeManager.start();
+        searcher.prepare(timeManager.deadline());
+        List<Future<?>> helperSearches = startHelpers(root);
+        Move move;
+        try {
+            move = search(root, s);
+        } finally {
+            stopHelpers(helperSearches);
+            // a stop request only applies to the search it was meant for
+            searcher.clearStop();
         }
 
-        return 30 * evalCount(pieces) +
-                4 * evalFormations(pieces) +
-                2 * evalBaseline(pieces) +
-                evalTempi(pieces) +
-                evalCenter(pieces);
+        if (ponderer != null && move != null) {
+            startPondering(s, move);
+        }
+        return move;
     }
 
     /**
-     * Counts the number of pieces for each player.
+     * Starts pondering on the position after move and the opponent's reply
+     * that is expected from the transposition table. All results of pondering
+     * end up in the shared transposition table, so when the opponent plays the
+     * expected reply, the next search starts with a filled table. If no reply
+     * can be predicted, nothing is pondered.
      *
-     * @param pieces board state
-     * @return difference of piece count between players
+     * @param s    state in which move is played
+     * @param move the move that is played
      */
-    private int evalCount(int[] pieces) {
-        int piecesWhite = 0, piecesBlack = 0;
-        int kingsWhite = 0, kingsBlack = 0;
-
-        for (int p : pieces) {
-            switch (p) {
-                case DraughtsState.WHITEPIECE:
-                    piecesWhite++;
-                    break;
-                case DraughtsState.WHITEKING:
-                    kingsWhite++;
-                    break;
-                case DraughtsState.BLACKPIECE:
-                    piecesBlack++;
-                    break;
-                case DraughtsState.BLACKKING:
-                    kingsBlack++;
-                    break;
-            }
+    private void startPondering(DraughtsState s, Move move) {
+        // the ponderer is idle, so its state can be used
+        DraughtsState ponderState = ponderer.getState();
+        ponderState.copyFrom(s);
+        ponderState.doMove(move);
+
+        Move reply = findMove(ponderState, TranspositionTable.move(tt.probe(ponderState.hashKey())));
+        if (reply == null) {
+            return;
         }
-
-        int pieceWeight, kingWeight;
-        if (piecesWhite + piecesBlack > 15) {
-            pieceWeight = 1;
-            kingWeight = 3;
-        } else {
-            // Kings are more important in end-game
-            pieceWeight = 1;
-            kingWeight = 5;
+        ponderState.doMove(reply);
+        ponderKey = ponderState.hashKey();
+
+        // ponder no longer than the opponent may think, if that is known
+        long ponderTime = MAX_PONDER_TIME * 1000000L;
+        long budget = timeManager.getBudget();
+        if (budget != 0) {
+            ponderTime = Math.min(ponderTime, budget);
         }
-
-        return pieceWeight * (piecesWhite - piecesBlack) +
-                kingWeight * (kingsWhite - kingsBlack);
+        Searcher p = ponderer;
+        p.prepare(System.nanoTime() + ponderTime);
+        ponderSearch = ponderPool.submit(() -> p.iterate(1));
     }
 
     /**
-     * Gets a score based on the strength of formations on the board, i.e. rows of 2 or 3 same-colored pieces.
-     *
-     * @param pieces board state
-     * @return difference of formation strength between players
+     * Stops the ponder search and waits until it has finished.
      */
-    private int evalFormations(int[] pieces) {
-        int formationWhite = 0, formationBlack = 0;
-
-        for (int i = 1; i <= 50; i++) {
-            if (!isEmpty(pieces[i])) {
-                boolean isWhite = isWhite(pieces[i]);
-                int behindLeft1 = pieceBehind(i, isWhite, true, pieces);
-                if (behindLeft1 != -1) {
-                    int behindLeft2 = pieceBehind(behindLeft1, isWhite, true, pieces);
-                    if (behindLeft2 != -1) {
-                        if (isWhite) {
-                            formationWhite += 3;
-                        } else {
-                            formationBlack += 3;
-                        }
-                    } else {
-                        if (isWhite) {
-                            formationWhite += 1;
-                        } else {
-                            formationBlack += 1;
-                        }
-                    }
-                }
-
-                int behindRight1 = pieceBehind(i, isWhite, false, pieces);
-                if (behindRight1 != -1) {
-                    int behindRight2 = pieceBehind(behindRight1, isWhite, false, pieces);
-                    if (behindRight2 != -1) {
-                        if (isWhite) {
-                            formationWhite += 3;
-                        } else {
-                            formationBlack += 3;
-                        }
-                    } else {
-                        if (isWhite) {
-                            formationWhite += 1;
-                        } else {
-                            formationBlack += 1;
-                        }
-                    }
-                }
-            }
+    private void stopPondering() {
+        if (ponderSearch == null) {
+            return;
         }
-
-        return formationWhite - formationBlack;
+        ponderer.stop();
+        try {
+            ponderSearch.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            ex.printStackTrace();
+        }
+        ponderer.clearStop();
+        ponderSearch = null;
     }
 
     /**
-     * Gets a score based on how many pieces are still on the baseline (more is better).
-     * Only affects early to mid game (at least 25 pieces on the board).
-     *
-     * @param pieces board state
-     * @return difference of baseline score between players
+     * Returns the legal move in s with the given encoding, or null if there is none.
      */
-    private int evalBaseline(int[] pieces) {
-        int baselineWhite = 0, baselineBlack = 0;
-        int otherWhite = 0, otherBlack = 0;
-
-        for (int i = 1; i < 6; i++) {
-            if (isBlack(pieces[i])) {
-                baselineBlack++;
-            }
-        }
-        for (int i = 6; i < 46; i++) {
-            if (isWhite(pieces[i])) {
-                otherWhite++;
-            } else if (isBlack(pieces[i])) {
-                otherBlack++;
-            }
-        }
-        for (int i = 46; i <= 50; i++) {
-            if (isWhite(pieces[i])) {
-                baselineWhite++;
+    private Move findMove(DraughtsState s, int encodedMove) {
+        for (int i = 0; i < s.moveCount(); i++) {
+            Move move = s.moveAt(i);
+            if (TranspositionTable.encodeMove(move) == encodedMove) {
+                return move;
             }
         }
+        return null;
+    }
 
-        if (baselineWhite + baselineBlack + otherWhite + otherBlack < 25) {
-            return 0;
+    /**
+     * Starts every helper on its own copy of s. Odd helpers start one ply
+     * deeper than the main search, so the threads do not all search the same
+     * tree at the same time.
+     */
+    private List<Future<?>> startHelpers(DraughtsState s) {
+        List<Future<?>> helperSearches = new ArrayList<>(helpers.length);
+        for (int i = 0; i < helpers.length; i++) {
+            Searcher helper = helpers[i];
+            helper.getState().copyFrom(s);
+            int firstDepth = 1 + (i + 1) % 2;
+            helper.prepare(Long.MAX_VALUE);
+            helperSearches.add(helperPool.submit(() -> helper.iterate(firstDepth)));
         }
-        return baselineWhite - baselineBlack;
+        return helperSearches;
     }
 
     /**
-     * Calculates the tempi difference, to measure how far pieces have advanced in the field.
-     * Calculated as the sum of each piece multiplied with its row position.
-     *
-     * @param pieces board state
-     * @return tempi difference
+     * Stops all helpers and waits until they have finished.
      */
-    private int evalTempi(int[] pieces) {
-        int tempiWhite = 0, tempiBlack = 0;
-
-        for (int i = 1; i < pieces.length; i++) {
-            int row;
-            switch (pieces[i]) {
-                case DraughtsState.WHITEPIECE:
-                    row = getRow(i);
-                    tempiWhite += 11 - row;
-                    break;
-                case DraughtsState.BLACKPIECE:
-                    row = getRow(i);
-                    tempiBlack += row;
-                    break;
+    private void stopHelpers(List<Future<?>> helperSearches) {
+        for (Searcher helper : helpers) {
+            helper.stop();
+        }
+        for (Future<?> helperSearch : helperSearches) {
+            try {
+                helperSearch.get();
+            } catch (InterruptedException | ExecutionException ex) {
+                ex.printStackTrace();
             }
         }
-
-        return tempiWhite - tempiBlack;
+        for (Searcher helper : helpers) {
+            helper.clearStop();
+        }
     }
 
     /**
-     * Counts pieces in the center of the board (e.g. not on the edges).
+     * Iterative deepening as done by the main thread.
      *
-     * @param pieces board state
-     * @return difference in center pieces between players
+     * @param s      the state to search in, left behind halfway the tree when
+     *               the search is stopped
+     * @param origin an unmodified copy of s
      */
-    private int evalCenter(int[] pieces) {
-        int whiteCenter = 0, blackCenter = 0;
-
-        for (int p : pieces) {
-            if (!isEmpty(p)) {
-                int column = getColumn(p);
-                if (!(column == 1 || column == 5)) {
-                    if (isWhite(p)) {
-                        whiteCenter++;
-                    } else {
-                        blackCenter++;
-                    }
-                }
-            }
+    private Move search(DraughtsState s, DraughtsState origin) {
+        // don't think if there is nothing to choose
+        List<Move> legalMoves = s.getMoves();
+        if (legalMoves.size() == 1) {
+            System.err.format("%s: only one legal move\n", this.getClass().getSimpleName());
+            timeManager.searchFinished(false);
+            return legalMoves.get(0);
         }
 
-        return whiteCenter - blackCenter;
-    }
+        Move bestMove = null;
+        bestValue = 0;
+        boolean timeLimited = false;   // whether the time manager ended the search
+        searcher.newSearch();
+        DraughtsNode node = new DraughtsNode(s);    // the root of the search tree
+        try {
+            for (int depth = 1; depth <= maxSearchDepth; depth++) {
+                if (!timeManager.startNextIteration()) {
+                    timeLimited = true;
+                    break;
+                }
+                node.setBestMove(null);
 
-    private int pieceBehind(int i, boolean isWhite, boolean lookLeft, int[] pieces) {
-        if (isWhite) {
-            return pieceBehindWhite(i, lookLeft, pieces);
-        } else {
-            return pieceBehindBlack(i, lookLeft, pieces);
-        }
-    }
+                // compute bestMove and bestValue in a call to alphaBeta
+                bestValue = searcher.aspirationSearch(node, depth, bestValue);
 
-    private int pieceBehindWhite(int piece, boolean lookLeft, int[] pieces) {
-        int row = getRow(piece);
-        int column = getColumn(piece);
-        if (row % 2 == 1) {
-            // Odd row
-            if (lookLeft) {
-                // piece <= 45
-                int iBehind = piece + 5;
-                if (isWhite(pieces[iBehind])) {
-                    return iBehind;
-                }
-            } else {
-                if (column == 5) {
-                    // Rightmost column has no square right of it
-                    return -1;
-                }
-                // piece <= 44
-                int iBehind = piece + 6;
-                if (isWhite(pieces[iBehind])) {
-                    return iBehind;
+                // store the bestMove found up until now
+                // NB this is not done in case of an AIStoppedException in alphaBeta()
+                bestMove = node.getBestMove();
+                searcher.setRootBestMove(bestMove);
+
+                // print the results for debugging reasons
+                System.err.format(
+                        "%s: depth = %2d, best move = %5s, value = %d, nodes = %d + %d, first move cutoffs = %.1f%%, researches = %d, eval cache hits = %.1f%%\n",
+                        this.getClass().getSimpleName(), depth, bestMove, bestValue,
+                        searcher.getNodes(), searcher.getQuiescenceNodes(), searcher.firstMoveCutoffRate(),
+                        searcher.getAspirationResearches(), searcher.evalCacheHitRate()
+                );
+                if (bestMove != null) {     // null if there are no legal moves
+                    timeManager.iterationFinished(TranspositionTable.encodeMove(bestMove));
                 }
             }
-        } else {
-            // Even row
-            if (row == 10) {
-                // Bottom row has no square behind it
-                return -1;
-            }
-            if (lookLeft) {
-                if (column == 1) {
-                    // Leftmost column has no square left of it
-                    return -1;
-                }
-                // piece <= 40
-                int iBehind = piece + 4;
-                if (isWhite(pieces[iBehind])) {
-                    return iBehind;
-                }
-            } else {
-                // piece <= 40
-                int iBehind = piece + 5;
-                if (isWhite(pieces[iBehind])) {
-                    return iBehind;
-                }
+        } catch (AIStoppedException ex) {
+            // time between the stop request (or the deadline) and the abort
+            timeLimited = !searcher.isStopped();
+            long stopTime = timeLimited ? searcher.getDeadline() : stopRequestTime;
+            System.err.format("%s: stopped after %.2f ms, stop latency = %.3f ms\n",
+                    this.getClass().getSimpleName(),
+                    timeManager.elapsed() / 1e6, (System.nanoTime() - stopTime) / 1e6);
+
+            // The first move searched at the root is the best move of the
+            // previous iteration, so a best move of the interrupted iteration
+            // is at least as good.
+            Move partialBestMove = node.getBestMove();
+            if (partialBestMove != null && !partialBestMove.equals(bestMove)) {
+                System.err.format("%s: best move of interrupted iteration = %5s\n",
+                        this.getClass().getSimpleName(), partialBestMove);
+                bestMove = partialBestMove;
             }
         }
-        return -1;
-    }
+        timeManager.searchFinished(timeLimited);
 
-    private int pieceBehindBlack(int i, boolean lookLeft, int[] pieces) {
-        int row = getRow(i);
-        int column = getColumn(i);
-        if (row % 2 == 1) {
-            // Odd row
-            if (row == 1) {
-                // Top row has no square above it
-                return -1;
-            }
-            if (lookLeft) {
-                // piece >= 10
-                int iBehind = i - 5;
-                if (isBlack(pieces[iBehind])) {
-                    return iBehind;
-                }
-            } else {
-                if (column == 5) {
-                    // Top row has no square above it, and
-                    // rightmost column has no square right of it
-                    return -1;
-                }
-                // piece >= 11
-                int iBehind = i - 4;
-                if (isBlack(pieces[iBehind])) {
-                    return iBehind;
-                }
-            }
+        if (bestMove == null) {
+            System.err.println("no valid move found!");
+            return getRandomValidMove(origin);
         } else {
-            // Even row
-            if (lookLeft) {
-                if (column == 1) {
-                    // Leftmost column has no square left of it
-                    return -1;
-                }
-                // piece >= 7
-                int iBehind = i - 6;
-                if (isBlack(pieces[iBehind])) {
-                    return iBehind;
-                }
-            } else {
-                if (column == 5) {
-                    // Rightmost column has no square right of it
-                    return -1;
-                }
-                // piece >= 6
-                int iBehind = i - 5;
-                if (isBlack(pieces[iBehind])) {
-                    return iBehind;
-                }
-            }
+            return bestMove;
         }
-        return -1;
     }
 
-    private boolean isEmpty(int piece) {
-        return !(piece == DraughtsState.WHITEPIECE ||
-                piece == DraughtsState.WHITEKING ||
-                piece == DraughtsState.BLACKPIECE ||
-                piece == DraughtsState.BLACKKING);
-    }
-
-    private boolean isWhite(int piece) {
-        return piece == DraughtsState.WHITEPIECE ||
-                piece == DraughtsState.WHITEKING;
-    }
-
-    private boolean isBlack(int piece) {
-        return piece == DraughtsState.BLACKPIECE ||
-                piece == DraughtsState.BLACKKING;
+    /**
+     * This method's return value is displayed in the AICompetition GUI.
+     *
+     * @return the value for the draughts state s as it is computed in a call to
+     * getMove(s).
+     */
+    @Override
+    public Integer getValue() {
+        return bestValue;
     }
 
-    private int getRow(int i) {
-        return 1 + (i - 1) / 5;
+    /**
+     * Tries to make alpha-beta search stop. Search should be implemented such that it
+     * throws an AIStoppedException when boolean stopped is set to true;
+     * the helpers of a multi-threaded search are stopped as well.
+     **/
+    @Override
+    public void stop() {
+        stopRequestTime = System.nanoTime();
+        timeManager.stopRequested();
+        searcher.stop();
+        for (Searcher helper : helpers) {
+            helper.stop();
+        }
     }
 
-    private int getColumn(int i) {
-        return 1 + (i - 1) % 5;
+    /**
+     * Returns random valid move in state s, or null if no moves exist.
+     */
+    private Move getRandomValidMove(DraughtsState s) {
+        List<Move> moves = s.getMoves();
+        Collections.shuffle(moves);
+        return moves.isEmpty() ? null : moves.get(0);
     }
 }
@@ -0,0 +1,254 @@
+package nl.tue.s2id90.group92;
+
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.MoveCodec;
+import org10x10.dam.game.Move;
+
+/**
+ * Bitboard representation of a draughts position: the white pieces, the black
+ * pieces and the kings are each kept as a 64-bit mask.
+ * <p>
+ * Field f is stored in bit f - 1 + (f - 1) / 10, so after every ten fields one
+ * (ghost) bit is skipped:
+ * <blockquote><pre>
+ *  fields  1-10  bits  0- 9
+ *  fields 11-20  bits 11-20
+ *  fields 21-30  bits 22-31
+ *  fields 31-40  bits 33-42
+ *  fields 41-50  bits 44-53
+ * </pre></blockquote>
+ * With this layout every diagonal step is the same shift for all fields: down
+ * left is +5, down right is +6, up left is -6 and up right is -5. A step off
+ * the left or right edge lands on a ghost bit and a step off the top or
+ * bottom leaves the board, so masking with BOARD removes all invalid steps.
+ *
+ * @author Nimo Beeren & Maas van Apeldoorn
+ */
+public class Bitboard {
+    /**
+     * Mask with the bits of all 50 fields.
+     */
+    public static final long BOARD;
+
+    /**
+     * Bit of every field, indexed by field number (index 0 is unused).
+     */
+    private static final long[] BIT = new long[51];
+
+    static {
+        long board = 0;
+        for (int f = 1; f <= 50; f++) {
+            BIT[f] = 1L << (f - 1 + (f - 1) / 10);
+            board |= BIT[f];
+        }
+        BOARD = board;
+    }
+
+    private long white;
+    private long black;
+    private long kings;
+
+    /**
+     * @return the bit of field f
+     */
+    public static long bit(int f) {
+        return BIT[f];
+    }
+
+    /**
+     * @return the field stored in the given bit index
+     */
+    public static int field(int bitIndex) {
+        return bitIndex - bitIndex / 11 + 1;
+    }
+
+    public static long downLeft(long mask) {
+        return (mask << 5) & BOARD;
+    }
+
+    public static long downRight(long mask) {
+        return (mask << 6) & BOARD;
+    }
+
+    public static long upLeft(long mask) {
+        return (mask >>> 6) & BOARD;
+    }
+
+    public static long upRight(long mask) {
+        return (mask >>> 5) & BOARD;
+    }
+
+    /**
+     * Sets this bitboard to the position of the given state.
+     *
+     * @param state draughts state
+     */
+    public void set(DraughtsState state) {
+        int[] pieces = state.getPieces();
+        white = black = kings = 0;
+        for (int f = 1; f <= 50; f++) {
+            int piece = pieces[f];
+            if (piece == DraughtsState.WHITEPIECE || piece == DraughtsState.WHITEKING) {
+                white |= BIT[f];
+            } else if (piece == DraughtsState.BLACKPIECE || piece == DraughtsState.BLACKKING) {
+                black |= BIT[f];
+            }
+            if (isKing(piece)) {
+                kings |= BIT[f];
+            }
+        }
+    }
+
+    /**
+     * Updates this bitboard for doing move m.
+     */
+    public void doMove(Move m) {
+        toggle(m);
+    }
+
+    /**
+     * Updates this bitboard for undoing move m.
+     */
+    public void undoMove(Move m) {
+        toggle(m);
+    }
+
+    /**
+     * Toggles the bits that change when m is done (or undone). Since all
+     * updates are XORs, this is its own inverse.
+     */
+    private void toggle(Move m) {
+        long begin = BIT[m.getBeginField()];
+        long end = BIT[m.getEndField()];
+        long captured = 0;
+        long capturedKings = 0;
+        for (int i = 0; i < m.getCaptureCount(); i++) {
+            long bit = BIT[m.getCapturedField(i)];
+            captured |= bit;
+            if (isKing(m.getCapturedPiece(i))) {
+                capturedKings |= bit;
+            }
+        }
+
+        if (m.isWhiteMove()) {
+            white ^= begin ^ end;
+            black ^= captured;
+        } else {
+            black ^= begin ^ end;
+            white ^= captured;
+        }
+        kings ^= capturedKings;
+        if (isKing(m.getBeginPiece())) {
+            kings ^= begin;
+        }
+        if (isKing(m.getEndPiece())) {
+            kings ^= end;
+        }
+    }
+
+    /**
+     * Updates this bitboard for doing the encoded move with the given piece
+     * signature, see MoveCodec.
+     */
+    public void doMove(long move, long signature) {
+        toggle(move, signature);
+    }
+
+    /**
+     * Updates this bitboard for undoing the encoded move with the given piece
+     * signature, see MoveCodec.
+     */
+    public void undoMove(long move, long signature) {
+        toggle(move, signature);
+    }
+
+    /**
+     * Toggles the bits that change when the encoded move is done (or undone),
+     * like toggle(Move).
+     */
+    private void toggle(long move, long signature) {
+        long begin = BIT[MoveCodec.beginField(move)];
+        long end = BIT[MoveCodec.endField(move)];
+        long captured = fromFieldMask(MoveCodec.capturedFields(move));
+        int beginPiece = (int) signature & 7;
+        int endPiece = (int) (signature >>> 3) & 7;
+
+        if (beginPiece == DraughtsState.WHITEPIECE || beginPiece == DraughtsState.WHITEKING) {
+            white ^= begin ^ end;
+            black ^= captured;
+        } else {
+            black ^= begin ^ end;
+            white ^= captured;
+        }
+        kings ^= fromFieldMask(signature >>> 6);
+        if (isKing(beginPiece)) {
+            kings ^= begin;
+        }
+        if (isKing(endPiece)) {
+            kings ^= end;
+        }
+    }
+
+    /**
+     * Converts a mask with field f in bit f - 1 into a bitboard mask, by
+     * inserting the ghost bits.
+     */
+    public static long fromFieldMask(long fields) {
+        return fields & 0x3FFL
+                | (fields & 0x3FFL << 10) << 1
+                | (fields & 0x3FFL << 20) << 2
+                | (fields & 0x3FFL << 30) << 3
+                | (fields & 0x3FFL << 40) << 4;
+    }
+
+    public long white() {
+        return white;
+    }
+
+    public long black() {
+        return black;
+    }
+
+    public long kings() {
+        return kings;
+    }
+
+    public long whiteMen() {
+        return white & ~kings;
+    }
+
+    public long blackMen() {
+        return black & ~kings;
+    }
+
+    public long empty() {
+        return BOARD & ~(white | black);
+    }
+
+    /**
+     * Gets the formation score of the white pieces: for every white piece and
+     * each of both directions behind it (down left and down right), 1 if the
+     * next field holds a white piece, and 3 if the next two fields do.
+     */
+    public int whiteFormations() {
+        long left = white & (white >>> 5);
+        long right = white & (white >>> 6);
+        return Long.bitCount(left) + 2 * Long.bitCount(left & (white >>> 10))
+                + Long.bitCount(right) + 2 * Long.bitCount(right & (white >>> 12));
+    }
+
+    /**
+     * Gets the formation score of the black pieces, like whiteFormations, but
+     * with the directions behind a black piece being up left and up right.
+     */
+    public int blackFormations() {
+        long left = black & (black << 6);
+        long right = black & (black << 5);
+        return Long.bitCount(left) + 2 * Long.bitCount(left & (black << 12))
+                + Long.bitCount(right) + 2 * Long.bitCount(right & (black << 10));
+    }
+
+    private static boolean isKing(int piece) {
+        return piece == DraughtsState.WHITEKING || piece == DraughtsState.BLACKKING;
+    }
+}
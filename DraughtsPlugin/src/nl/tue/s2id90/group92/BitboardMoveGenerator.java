@@ -0,0 +1,302 @@
+package nl.tue.s2id90.group92;
+
+import nl.tue.s2id90.draughts.MoveCodec;
+
+/**
+ * Move generator for international draughts that works directly on a
+ * Bitboard. It implements the international rules:
+ * <ul>
+ * <li> capturing is compulsory, and a capture with the largest number of
+ * pieces must be chosen (the majority rule; kings count as a single piece)
+ * <li> men move forward, but capture both forward and backward
+ * <li> kings fly: they move and capture over any distance, and may land on
+ * any empty field behind the captured piece
+ * <li> captured pieces are only removed after the capture is complete, so a
+ * piece cannot be jumped twice and blocks the capturing piece
+ * <li> a man only promotes if it ends its move on the last row
+ * </ul>
+ * Captures that only differ in the order in which the same pieces are taken
+ * are generated once.
+ * <p>
+ * Moves are encoded in a long as by MoveCodec, so they can be decoded with
+ * MoveCodec.beginField, endField and capturedFields. The lower 12 bits equal
+ * TranspositionTable#encodeMove.
+ * <p>
+ * Moves are written into a buffer of the caller, so generating moves does not
+ * allocate any objects. A generator keeps some state while generating
+ * captures, so it must not be shared between threads.
+ *
+ * @author Nimo Beeren & Maas van Apeldoorn
+ */
+public class BitboardMoveGenerator {
+    /**
+     * Minimal length of a move buffer.
+     */
+    public static final int MAX_MOVES = 256;
+
+    /**
+     * Shifts of the four diagonal directions: down left, down right, up
+     * right and up left.
+     */
+    private static final int[] DIRECTIONS = {5, 6, -5, -6};
+
+    /**
+     * Bits of the rows on which white and black men promote.
+     */
+    private static final long WHITE_PROMOTION_ROW = rowMask(1);
+    private static final long BLACK_PROMOTION_ROW = rowMask(46);
+
+    // state of the capture generation
+    private long[] moves;
+    private int count;
+    private int captureStart;
+    private int mostCaptures;
+    private long opponent;
+    private long empty;
+    private int begin;
+
+    /**
+     * Generates all legal moves of the player to move.
+     *
+     * @param board       the position
+     * @param whiteToMove whether or not white is to move
+     * @param moves       buffer of at least MAX_MOVES elements to write the
+     *                    moves into
+     * @return the number of moves written into the buffer
+     */
+    public int generate(Bitboard board, boolean whiteToMove, long[] moves) {
+        int n = generateCaptures(board, whiteToMove, moves);
+        return n > 0 ? n : generateQuietMoves(board, whiteToMove, moves);
+    }
+
+    /**
+     * Generates the captures with the largest number of captured pieces.
+     *
+     * @return the number of moves written into the buffer, 0 if the player to
+     * move cannot capture
+     */
+    public int generateCaptures(Bitboard board, boolean whiteToMove, long[] moves) {
+        long own = whiteToMove ? board.white() : board.black();
+        this.moves = moves;
+        this.opponent = whiteToMove ? board.black() : board.white();
+        this.count = 0;
+        this.captureStart = 0;
+        this.mostCaptures = 1;
+
+        long kings = own & board.kings();
+        for (long men = own & ~kings; men != 0; men &= men - 1) {
+            begin = Long.numberOfTrailingZeros(men);
+            empty = Bitboard.BOARD & ~(own | opponent) | 1L << begin;
+            manCaptures(begin, 0, 0);
+        }
+        for (; kings != 0; kings &= kings - 1) {
+            begin = Long.numberOfTrailingZeros(kings);
+            empty = Bitboard.BOARD & ~(own | opponent) | 1L << begin;
+            kingCaptures(begin, 0, 0);
+        }
+        this.moves = null;
+        return count;
+    }
+
+    /**
+     * Generates the moves without a capture. Only legal if there are no
+     * captures.
+     *
+     * @return the number of moves written into the buffer
+     */
+    public int generateQuietMoves(Bitboard board, boolean whiteToMove, long[] moves) {
+        long own = whiteToMove ? board.white() : board.black();
+        long empty = board.empty();
+        long kings = own & board.kings();
+        long men = own & ~kings;
+        int n = 0;
+
+        int left = whiteToMove ? -6 : 5;
+        int right = whiteToMove ? -5 : 6;
+        for (long to = shift(men, left) & empty; to != 0; to &= to - 1) {
+            int end = Long.numberOfTrailingZeros(to);
+            moves[n++] = encode(end - left, end, 0);
+        }
+        for (long to = shift(men, right) & empty; to != 0; to &= to - 1) {
+            int end = Long.numberOfTrailingZeros(to);
+            moves[n++] = encode(end - right, end, 0);
+        }
+
+        for (; kings != 0; kings &= kings - 1) {
+            int from = Long.numberOfTrailingZeros(kings);
+            for (int d : DIRECTIONS) {
+                for (int to = from + d; isEmpty(empty, to); to += d) {
+                    moves[n++] = encode(from, to, 0);
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @return whether or not the player to move can capture
+     */
+    public boolean hasCapture(Bitboard board, boolean whiteToMove) {
+        long own = whiteToMove ? board.white() : board.black();
+        long opponent = whiteToMove ? board.black() : board.white();
+        long empty = board.empty();
+
+        // captures of adjacent pieces, by men and kings alike
+        for (int d : DIRECTIONS) {
+            if ((shift(shift(own, d) & opponent, d) & empty) != 0) {
+                return true;
+            }
+        }
+
+        // captures of distant pieces by kings
+        for (long kings = own & board.kings(); kings != 0; kings &= kings - 1) {
+            int from = Long.numberOfTrailingZeros(kings);
+            for (int d : DIRECTIONS) {
+                int over = from + d;
+                while (isEmpty(empty, over)) {
+                    over += d;
+                }
+                if (isOn(opponent, over) && isEmpty(empty, over + d)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether or not the player to move has any legal move
+     */
+    public boolean hasMove(Bitboard board, boolean whiteToMove) {
+        long own = whiteToMove ? board.white() : board.black();
+        long empty = board.empty();
+        long kings = own & board.kings();
+        long men = own & ~kings;
+
+        long targets = whiteToMove
+                ? Bitboard.upLeft(men) | Bitboard.upRight(men)
+                : Bitboard.downLeft(men) | Bitboard.downRight(men);
+        targets |= Bitboard.upLeft(kings) | Bitboard.upRight(kings)
+                | Bitboard.downLeft(kings) | Bitboard.downRight(kings);
+        return (targets & empty) != 0 || hasCapture(board, whiteToMove);
+    }
+
+    /**
+     * @return whether or not an encoded move ends with the promotion of a man
+     * on the given position
+     */
+    public static boolean isPromotion(Bitboard board, long move) {
+        long begin = Bitboard.bit(MoveCodec.beginField(move));
+        if ((board.kings() & begin) != 0) {
+            return false;
+        }
+        long row = (board.white() & begin) != 0 ? WHITE_PROMOTION_ROW : BLACK_PROMOTION_ROW;
+        return (row & Bitboard.bit(MoveCodec.endField(move))) != 0;
+    }
+
+    /**
+     * Continues a capture of a man that has arrived on bit index at, after
+     * capturing the pieces in captured.
+     */
+    private void manCaptures(int at, long captured, int n) {
+        boolean extended = false;
+        for (int d : DIRECTIONS) {
+            int over = at + d;
+            if (isOn(opponent & ~captured, over) && isEmpty(empty, over + d)) {
+                extended = true;
+                manCaptures(over + d, captured | 1L << over, n + 1);
+            }
+        }
+        if (!extended && n > 0) {
+            addCapture(at, captured, n);
+        }
+    }
+
+    /**
+     * Continues a capture of a king that has arrived on bit index at, after
+     * capturing the pieces in captured.
+     */
+    private void kingCaptures(int at, long captured, int n) {
+        boolean extended = false;
+        for (int d : DIRECTIONS) {
+            int over = at + d;
+            while (isEmpty(empty, over)) {
+                over += d;
+            }
+            if (!isOn(opponent & ~captured, over)) {
+                continue;
+            }
+            for (int to = over + d; isEmpty(empty, to); to += d) {
+                extended = true;
+                kingCaptures(to, captured | 1L << over, n + 1);
+            }
+        }
+        if (!extended && n > 0) {
+            addCapture(at, captured, n);
+        }
+    }
+
+    /**
+     * Adds a complete capture, if it captures at least as many pieces as the
+     * captures found so far, and is not found before.
+     */
+    private void addCapture(int end, long captured, int n) {
+        if (n < mostCaptures) {
+            return;
+        }
+        if (n > mostCaptures) {
+            mostCaptures = n;
+            count = captureStart;
+        }
+        long move = encode(begin, end, captured);
+        for (int i = captureStart; i < count; i++) {
+            if (moves[i] == move) {
+                return;
+            }
+        }
+        moves[count++] = move;
+    }
+
+    /**
+     * Encodes a move given in bit indices.
+     */
+    private static long encode(int from, int to, long captured) {
+        return MoveCodec.encode(Bitboard.field(from), Bitboard.field(to), toFieldMask(captured));
+    }
+
+    /**
+     * Converts a bitboard mask into a mask with field f in bit f - 1, by
+     * removing the ghost bits.
+     */
+    private static long toFieldMask(long bits) {
+        return bits & 0x3FFL
+                | bits >>> 1 & 0x3FFL << 10
+                | bits >>> 2 & 0x3FFL << 20
+                | bits >>> 3 & 0x3FFL << 30
+                | bits >>> 4 & 0x3FFL << 40;
+    }
+
+    /**
+     * Shifts a mask one step in direction d; fields that leave the board are
+     * dropped.
+     */
+    private static long shift(long mask, int d) {
+        return (d > 0 ? mask << d : mask >>> -d) & Bitboard.BOARD;
+    }
+
+    private static boolean isOn(long mask, int bitIndex) {
+        return bitIndex >= 0 && bitIndex < 64 && (mask >>> bitIndex & 1) != 0;
+    }
+
+    private static boolean isEmpty(long empty, int bitIndex) {
+        return isOn(empty, bitIndex);
+    }
+
+    private static long rowMask(int firstField) {
+        long mask = 0;
+        for (int f = firstField; f < firstField + 5; f++) {
+            mask |= Bitboard.bit(f);
+        }
+        return mask;
+    }
+}
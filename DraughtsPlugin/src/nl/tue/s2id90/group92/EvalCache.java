@@ -0,0 +1,118 @@
+package nl.tue.s2id90.group92;
+
+import java.util.Arrays;
+
+/**
+ * Direct-mapped cache of static evaluations, keyed by the hash key of the
+ * position. Like the TranspositionTable, entries are kept in a single long
+ * array, two slots per entry: the first slot holds the key XOR-ed with the
+ * data, the second slot holds the data (the score, and a bit that marks the
+ * entry as used).
+ * <p>
+ * The table can be shared by several search threads without locking, see
+ * share(). An entry whose slots were written by two threads at the same time
+ * (or a long slot that was torn, which the JLS allows for non-volatile longs)
+ * no longer satisfies key == first ^ second, so it simply reads as a miss.
+ * The hit counters are kept per EvalCache object, so threads do not contend
+ * on them.
+ *
+ * @author Nimo Beeren & Maas van Apeldoorn
+ */
+public class EvalCache {
+    /**
+     * Returned by probe when the position is not in the cache; no evaluation
+     * has this value.
+     */
+    public static final int MISS = Integer.MIN_VALUE;
+
+    /**
+     * Set in the data slot of every used entry, so that an empty entry never
+     * matches, not even for key 0.
+     */
+    private static final long USED = 1L << 32;
+
+    private final long[] table;
+    private final int mask;
+
+    private long probes;
+    private long hits;
+
+    /**
+     * Creates a cache with 2^sizeBits entries (16 bytes each).
+     *
+     * @param sizeBits log2 of the number of entries
+     */
+    public EvalCache(int sizeBits) {
+        this(new long[2 << sizeBits]);
+    }
+
+    private EvalCache(long[] table) {
+        this.table = table;
+        this.mask = table.length / 2 - 1;
+    }
+
+    /**
+     * Creates a cache that uses the same table as this cache, but has its own
+     * hit counters. Intended for the other threads of a multi-threaded search.
+     */
+    public EvalCache share() {
+        return new EvalCache(table);
+    }
+
+    /**
+     * Looks up the evaluation of a position.
+     *
+     * @param key hash key of the position
+     * @return the cached evaluation, or MISS
+     */
+    public int probe(long key) {
+        probes++;
+        int i = index(key);
+        long data = table[i + 1];
+        if ((data & USED) == 0 || (table[i] ^ data) != key) {
+            return MISS;
+        }
+        hits++;
+        return (int) data;
+    }
+
+    /**
+     * Stores the evaluation of a position, replacing whatever was stored in
+     * its entry.
+     *
+     * @param key   hash key of the position
+     * @param score the evaluation
+     */
+    public void store(long key, int score) {
+        int i = index(key);
+        long data = USED | score & 0xFFFFFFFFL;
+        table[i] = key ^ data;
+        table[i + 1] = data;
+    }
+
+    /**
+     * Removes all entries from the table.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+    }
+
+    /**
+     * Resets the hit counters of this cache.
+     */
+    public void resetStatistics() {
+        probes = 0;
+        hits = 0;
+    }
+
+    /**
+     * @return percentage of the probes since the last reset that were hits
+     */
+    public double hitRate() {
+        return probes == 0 ? 0 : 100.0 * hits / probes;
+    }
+
+    private int index(long key) {
+        return ((int) key & mask) << 1;
+    }
+}
@@ -0,0 +1,132 @@
+package nl.tue.s2id90.group92;
+
+import nl.tue.s2id90.draughts.MoveCodec;
+
+import java.util.Arrays;
+
+/**
+ * Orders moves such that the moves that are most likely to cause a beta
+ * cutoff are searched first. In order of priority:
+ * <ol>
+ * <li> the hash move (at the root: the best move of the previous iteration)
+ * <li> the two killer moves of the current ply, i.e. quiet moves that caused
+ * a cutoff in a sibling node
+ * <li> all other moves, sorted on their history score, i.e. on how often the
+ * same from/to combination caused a cutoff anywhere in the tree
+ * </ol>
+ * Also keeps statistics on how often the first move caused the cutoff.
+ *
+ * @author Nimo Beeren & Maas van Apeldoorn
+ */
+public class MoveOrdering {
+    /**
+     * Maximum distance from the root for which killer moves are kept.
+     */
+    private static final int MAX_PLY = 128;
+
+    private static final int HASH_MOVE_SCORE = Integer.MAX_VALUE;
+    private static final int KILLER_SCORE = Integer.MAX_VALUE - 2;
+
+    /**
+     * Two killer moves per ply, encoded by TranspositionTable#encodeMove.
+     */
+    private final int[][] killers = new int[MAX_PLY][2];
+
+    /**
+     * History scores indexed by [begin field][end field].
+     */
+    private final int[][] history = new int[51][51];
+
+    private long cutoffs;
+    private long firstMoveCutoffs;
+
+    /**
+     * Prepares for a new search: clears the killers and the statistics, and
+     * halves the history scores so older results weigh less.
+     */
+    public void newSearch() {
+        for (int[] k : killers) {
+            Arrays.fill(k, 0);
+        }
+        for (int[] h : history) {
+            for (int i = 0; i < h.length; i++) {
+                h[i] /= 2;
+            }
+        }
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+    }
+
+    /**
+     * Sorts the moves of a search stack frame in place, best candidates first.
+     *
+     * @param frame    frame with the moves to sort
+     * @param hashMove encoded move to try first, or 0 if there is none
+     * @param ply      distance from the root
+     */
+    public void order(SearchStack.Frame frame, int hashMove, int ply) {
+        int n = frame.size();
+        long[] moves = frame.moves();
+        int[] scores = frame.scores();
+        int[] killer = ply < MAX_PLY ? killers[ply] : killers[MAX_PLY - 1];
+
+        // insertion sort on descending score; move lists are short
+        for (int i = 0; i < n; i++) {
+            long move = moves[i];
+            int score = score(move, hashMove, killer);
+            int j = i;
+            while (j > 0 && scores[j - 1] < score) {
+                scores[j] = scores[j - 1];
+                moves[j] = moves[j - 1];
+                j--;
+            }
+            scores[j] = score;
+            moves[j] = move;
+        }
+    }
+
+    /**
+     * Registers that the given move caused a beta cutoff.
+     *
+     * @param move      the move that caused the cutoff, encoded as by MoveCodec
+     * @param depth     remaining depth of the node
+     * @param ply       distance from the root
+     * @param moveIndex index of the move in the ordered move list
+     */
+    public void cutoff(long move, int depth, int ply, int moveIndex) {
+        cutoffs++;
+        if (moveIndex == 0) {
+            firstMoveCutoffs++;
+        }
+
+        // captures are forced in draughts, so only quiet moves are remembered
+        if (MoveCodec.capturedFields(move) != 0) {
+            return;
+        }
+        int encoded = TranspositionTable.encodeMove(move);
+        if (ply < MAX_PLY && killers[ply][0] != encoded) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = encoded;
+        }
+        history[MoveCodec.beginField(move)][MoveCodec.endField(move)] += depth * depth;
+    }
+
+    /**
+     * @return percentage of the cutoffs that were caused by the first move
+     */
+    public double firstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : 100.0 * firstMoveCutoffs / cutoffs;
+    }
+
+    private int score(long move, int hashMove, int[] killer) {
+        int encoded = TranspositionTable.encodeMove(move);
+        if (encoded == hashMove) {
+            return HASH_MOVE_SCORE;
+        } else if (encoded == killer[0]) {
+            return KILLER_SCORE;
+        } else if (encoded == killer[1]) {
+            return KILLER_SCORE - 1;
+        }
+        return history[MoveCodec.beginField(move)][MoveCodec.endField(move)];
+    }
+}
@@ -14,6 +14,17 @@ public class MyDraughtsPlugin extends DraughtsPlayerProvider implements Draughts
         // During the final competition you should make only your 
         // best player available. For testing it might be handy
         // to make more than one player available.
-        super(new AlphaBeast(50));
+        super(new AlphaBeast(50, Runtime.getRuntime().availableProcessors()),
+                ponderingPlayer(Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Returns a player that also searches on the opponent's time; it has to
+     * be chosen explicitly, see AlphaBeast.setPonder.
+     */
+    private static AlphaBeast ponderingPlayer(int threads) {
+        AlphaBeast player = new AlphaBeast(50, threads);
+        player.setPonder(true);
+        return player;
     }
 }
@@ -0,0 +1,79 @@
+package nl.tue.s2id90.group92;
+
+import java.util.Arrays;
+
+/**
+ * Preallocated storage of the search, one frame per ply. A frame holds the
+ * moves of the node at that ply and their ordering scores. The frames are
+ * reused by all nodes at the same ply, in all iterations, so the search
+ * itself does not allocate.
+ *
+ * @author Nimo Beeren & Maas van Apeldoorn
+ */
+public class SearchStack {
+    /**
+     * Number of plies for which frames are created up front.
+     */
+    private static final int INITIAL_PLIES = 128;
+
+    private Frame[] frames = new Frame[0];
+
+    public SearchStack() {
+        grow(INITIAL_PLIES);
+    }
+
+    /**
+     * @return the frame of the given ply
+     */
+    public Frame frame(int ply) {
+        if (ply >= frames.length) {
+            grow(2 * ply);
+        }
+        return frames[ply];
+    }
+
+    private void grow(int plies) {
+        int old = frames.length;
+        frames = Arrays.copyOf(frames, plies);
+        for (int i = old; i < plies; i++) {
+            frames[i] = new Frame();
+        }
+    }
+
+    /**
+     * The moves of a node, encoded as by MoveCodec, and their ordering scores.
+     */
+    public static final class Frame {
+        private final long[] moves = new long[BitboardMoveGenerator.MAX_MOVES];
+        private final int[] scores = new int[BitboardMoveGenerator.MAX_MOVES];
+        private int size;
+
+        /**
+         * Sets the number of moves in this frame, after they have been
+         * written into moves().
+         */
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long move(int i) {
+            return moves[i];
+        }
+
+        /**
+         * @return the move buffer of this frame, of at least
+         * BitboardMoveGenerator.MAX_MOVES elements
+         */
+        public long[] moves() {
+            return moves;
+        }
+
+        public int[] scores() {
+            return scores;
+        }
+    }
+}
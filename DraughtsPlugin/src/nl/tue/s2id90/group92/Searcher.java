@@ -0,0 +1,705 @@
+package nl.tue.s2id90.group92;
+
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.MoveCodec;
+import org10x10.dam.game.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The alpha-beta search of a single thread, with its own state, bitboards,
+ * move ordering and search stack. The main search of AlphaBeast, its helpers
+ * and its ponderer each use a Searcher; they only share the transposition
+ * table and (optionally) the evaluation cache.
+ *
+ * @author Nimo Beeren & Maas van Apeldoorn
+ */
+class Searcher {
+    /**
+     * Value of a won position, larger than any heuristic evaluation.
+     */
+    private static final int WIN_VALUE = 1000000;
+
+    /**
+     * Bound of the search window, larger than any value of a position.
+     */
+    private static final int INFINITY = WIN_VALUE + 1;
+
+    /**
+     * Half width of the first aspiration window (a piece is worth 30).
+     */
+    private static final int ASPIRATION_WINDOW = 15;
+
+    /**
+     * Number of times an aspiration window is widened before falling back to
+     * the full window.
+     */
+    private static final int MAX_ASPIRATION_RESEARCHES = 3;
+
+    /**
+     * Number of nodes between two checks of the stop conditions; must be a
+     * power of 2.
+     */
+    private static final int POLL_INTERVAL = 64;
+
+    /**
+     * Late move reductions are only done at this remaining depth or more.
+     */
+    private static final int LMR_MIN_DEPTH = 3;
+
+    /**
+     * Late move reductions are only done for moves at this index or later in
+     * the ordered move list.
+     */
+    private static final int LMR_MIN_MOVE_INDEX = 3;
+
+    /**
+     * The reduction grows with log(depth) * log(move index) / LMR_DIVISOR.
+     */
+    private static final double LMR_DIVISOR = 2.0;
+
+    /**
+     * Bits of the back rows of black (fields 1-5) and white (fields 46-50).
+     */
+    private static final long BLACK_BACK_ROW = Bitboard.fromFieldMask(0x1FL);
+    private static final long WHITE_BACK_ROW = Bitboard.fromFieldMask(0x1FL << 45);
+
+    /**
+     * Precomputed reductions, indexed by [depth][move index].
+     */
+    private static final int[][] REDUCTIONS = new int[64][64];
+
+    static {
+        for (int depth = LMR_MIN_DEPTH; depth < 64; depth++) {
+            for (int index = LMR_MIN_MOVE_INDEX; index < 64; index++) {
+                int r = (int) (Math.log(depth) * Math.log(index) / LMR_DIVISOR);
+                // always leave at least one ply to search
+                REDUCTIONS[depth][index] = Math.max(1, Math.min(r, depth - 2));
+            }
+        }
+    }
+
+    private final int maxSearchDepth;
+
+    /**
+     * Transposition table, shared by all searchers of a player.
+     */
+    private final TranspositionTable tt;
+
+    /**
+     * Cache of static evaluations, possibly shared with other searchers.
+     */
+    private final EvalCache evalCache;
+
+    /**
+     * Bitboards of the state that is currently being searched.
+     */
+    private final Bitboard board = new Bitboard();
+
+    /**
+     * Answers the cheap questions about the moves in board (is there a
+     * capture, is there any move) without generating Move objects.
+     */
+    private final BitboardMoveGenerator generator = new BitboardMoveGenerator();
+
+    /**
+     * Killer moves and history scores used to order the moves.
+     */
+    private final MoveOrdering ordering = new MoveOrdering();
+
+    /**
+     * The state this searcher searches in, reused for every search.
+     */
+    private final DraughtsState searchState = new DraughtsState();
+
+    /**
+     * Per-ply move lists of the search, reused by all nodes.
+     */
+    private final SearchStack stack = new SearchStack();
+
+    /**
+     * The legal moves of the root as Move objects. Inside the tree, moves are
+     * only handled as longs (see MoveCodec); the best move of the root is
+     * looked up in this list.
+     */
+    private final List<Move> rootMoves = new ArrayList<>();
+
+    /**
+     * Best move of the last completed iteration, searched first at the root.
+     */
+    private Move rootBestMove;
+
+    /**
+     * Number of times the last aspiration search had to be repeated.
+     */
+    private int aspirationResearches;
+
+    /**
+     * Number of nodes visited in the current search.
+     */
+    private long nodes;
+
+    /**
+     * Number of quiescence nodes visited in the current search.
+     */
+    private long quiescenceNodes;
+
+    /**
+     * Boolean that indicates that the search has to stop. It is volatile,
+     * since it is set from another thread than the one that searches. The
+     * search only reads it once every POLL_INTERVAL nodes.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Time (System.nanoTime) at which the current search stops by itself.
+     */
+    private long deadline = Long.MAX_VALUE;
+
+    /**
+     * Number of nodes since the start of the search, used to poll the stop
+     * conditions every POLL_INTERVAL nodes.
+     */
+    private int pollCount;
+
+    /**
+     * @param maxSearchDepth maximum depth of the iterative deepening
+     * @param tt             transposition table
+     * @param evalCache      evaluation cache
+     */
+    Searcher(int maxSearchDepth, TranspositionTable tt, EvalCache evalCache) {
+        this.maxSearchDepth = maxSearchDepth;
+        this.tt = tt;
+        this.evalCache = evalCache;
+    }
+
+    /**
+     * Returns the state to search in. It has to be set up before a search,
+     * and is left behind halfway the tree when a search is stopped.
+     */
+    DraughtsState getState() {
+        return searchState;
+    }
+
+    /**
+     * Prepares the next search. A stop request that is still pending is kept,
+     * so a stop() that arrives before the search starts ends the search right
+     * away; see clearStop.
+     *
+     * @param deadline time (System.nanoTime) at which the search stops by
+     *                 itself, Long.MAX_VALUE for none
+     */
+    void prepare(long deadline) {
+        this.deadline = deadline;
+        pollCount = 0;
+    }
+
+    /**
+     * Forgets a stop request; called when a search has ended, so that the
+     * request does not stop the next search.
+     */
+    void clearStop() {
+        stopped = false;
+    }
+
+    /**
+     * Resets the statistics and the search data for a search of the state.
+     */
+    void newSearch() {
+        nodes = 0;
+        quiescenceNodes = 0;
+        board.set(searchState);
+        rootMoves.clear();
+        rootMoves.addAll(searchState.getMoves());
+        ordering.newSearch();
+        evalCache.resetStatistics();
+        rootBestMove = null;
+    }
+
+    /**
+     * Iterative deepening as done by a helper or the ponderer: the results are
+     * only used to fill the shared transposition table. Returns when the
+     * search is stopped, its deadline passes or the maximum depth is reached.
+     *
+     * @param firstDepth depth of the first iteration
+     */
+    void iterate(int firstDepth) {
+        newSearch();
+        DraughtsNode node = new DraughtsNode(searchState);
+        try {
+            for (int depth = firstDepth; depth <= maxSearchDepth; depth++) {
+                alphaBeta(node, -INFINITY, INFINITY, depth);
+                rootBestMove = node.getBestMove();
+            }
+        } catch (AIStoppedException ex) {  /* nothing to do */ }
+    }
+
+    /**
+     * Makes the search stop, by throwing an AIStoppedException.
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    /**
+     * @return whether or not stop() has been called since the last clearStop
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * @return time (System.nanoTime) at which the current search stops by itself
+     */
+    long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Sets the move that is searched first at the root.
+     */
+    void setRootBestMove(Move move) {
+        rootBestMove = move;
+    }
+
+    long getNodes() {
+        return nodes;
+    }
+
+    long getQuiescenceNodes() {
+        return quiescenceNodes;
+    }
+
+    int getAspirationResearches() {
+        return aspirationResearches;
+    }
+
+    double firstMoveCutoffRate() {
+        return ordering.firstMoveCutoffRate();
+    }
+
+    double evalCacheHitRate() {
+        return evalCache.hitRate();
+    }
+
+    /**
+     * Searches the root with a narrow window around the value of the previous
+     * iteration. When the value falls outside of the window, the window is
+     * widened on that side and the search is repeated, until the value lies
+     * inside the window. After MAX_ASPIRATION_RESEARCHES failures the full
+     * window is used.
+     *
+     * @param node          the root of the search tree
+     * @param depth         maximum recursion depth
+     * @param previousValue value of the root in the previous iteration
+     * @return the computed value of the root, from the perspective of white
+     */
+    int aspirationSearch(DraughtsNode node, int depth, int previousValue) throws AIStoppedException {
+        aspirationResearches = 0;
+        if (depth == 1 || Math.abs(previousValue) >= WIN_VALUE) {
+            return alphaBeta(node, -INFINITY, INFINITY, depth);
+        }
+
+        int delta = ASPIRATION_WINDOW;
+        int alpha = previousValue - delta;
+        int beta = previousValue + delta;
+        while (true) {
+            int value = alphaBeta(node, alpha, beta, depth);
+            if (value > alpha && value < beta) {
+                return value;
+            }
+
+            // search the move that failed high (if any) first next time
+            if (node.getBestMove() != null) {
+                rootBestMove = node.getBestMove();
+            }
+            aspirationResearches++;
+            delta *= 4;
+            if (aspirationResearches >= MAX_ASPIRATION_RESEARCHES) {
+                alpha = -INFINITY;
+                beta = INFINITY;
+            } else if (value <= alpha) {
+                alpha = Math.max(previousValue - delta, -INFINITY);
+            } else {
+                beta = Math.min(previousValue + delta, INFINITY);
+            }
+        }
+    }
+
+    /**
+     * Aborts the search, by throwing an AIStoppedException, if the searcher
+     * was asked to stop or the deadline has passed. To keep the overhead low,
+     * the stop conditions are only checked once every POLL_INTERVAL calls.
+     */
+    private void pollStop() throws AIStoppedException {
+        if ((++pollCount & (POLL_INTERVAL - 1)) == 0
+                && (stopped || System.nanoTime() >= deadline)) {
+            throw AIStoppedException.INSTANCE;
+        }
+    }
+
+    /**
+     * Implementation of alpha-beta that automatically chooses the white player
+     * as maximizing player and the black player as minimizing player.
+     *
+     * @param node  contains DraughtsState and has field to which the best move
+     *              can be assigned
+     * @param alpha the best value for the maximizing player
+     * @param beta  the best value for the minimizing player
+     * @param depth maximum recursion depth
+     * @return the computed value of this node
+     **/
+    private int alphaBeta(DraughtsNode node, int alpha, int beta, int depth)
+            throws AIStoppedException {
+        if (node.getState().isWhiteToMove()) {
+            return principalVariationSearch(node, alpha, beta, depth, 0);
+        } else {
+            return -principalVariationSearch(node, -beta, -alpha, depth, 0);
+        }
+    }
+
+    /**
+     * Negamax principal variation search. All values are from the perspective
+     * of the player to move in node. The first move is searched with the full
+     * window; the other moves are searched with a null window around alpha and
+     * are only searched again with the full window when they turn out to be
+     * better than alpha. The search is fail-soft: the returned value may lie
+     * outside of the window.
+     * <p>
+     * The same node is used at every ply: its state is updated by doing and
+     * undoing moves, and only the best move of the root is assigned to it. The
+     * moves are generated from the bitboards as longs (see MoveCodec) into the
+     * search stack, and done and undone in that form, so no moves, lists or
+     * nodes are allocated during the search.
+     *
+     * @param node  contains DraughtsState and has field to which the best move of the root is assigned
+     * @param alpha the value the player to move is already assured of
+     * @param beta  the value the opponent is already assured of
+     * @param depth maximum recursion depth
+     * @param ply   distance from the root of the search tree
+     * @return the computed value of this node
+     * @throws AIStoppedException thrown whenever the boolean stopped has been set to true
+     *                            or the deadline has passed.
+     */
+    private int principalVariationSearch(DraughtsNode node, int alpha, int beta, int depth, int ply)
+            throws AIStoppedException {
+        pollStop();
+        nodes++;
+
+        DraughtsState state = node.getState();
+        if (depth <= 0) {
+            return quiescence(node, alpha, beta, ply);
+        }
+
+        // Look up the position in the transposition table; never cut off at the
+        // root, since a best move has to be assigned there
+        long hashKey = state.hashKey();
+        long entry = tt.probe(hashKey);
+        if (entry != 0 && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = TranspositionTable.score(entry);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || bound == TranspositionTable.LOWER && score >= beta
+                    || bound == TranspositionTable.UPPER && score <= alpha) {
+                return score;
+            }
+        }
+        int alphaOriginal = alpha;
+
+        // staged generation: the quiet moves are only generated if there is no capture
+        SearchStack.Frame frame = stack.frame(ply);
+        frame.setSize(generator.generate(board, state.isWhiteToMove(), frame.moves()));
+        int moveCount = frame.size();
+        if (moveCount == 0) {
+            // the player to move cannot move, so it loses
+            return -WIN_VALUE;
+        }
+        ordering.order(frame, hashMove(entry, ply), ply);
+
+        // Don't decrease depth if only one move is possible (flexible depth)
+        if (moveCount == 1) {
+            depth++;
+        }
+
+        int bestValue = -INFINITY;
+        int bestMove = 0;
+        for (int moveIndex = 0; moveIndex < moveCount; moveIndex++) {
+            long move = frame.move(moveIndex);
+            long signature = doMove(state, move);
+
+            int childValue;
+            if (moveIndex == 0) {
+                childValue = -principalVariationSearch(node, -beta, -alpha, depth - 1, ply + 1);
+            } else {
+                int reduction = reduction(move, signature, depth, moveIndex);
+                childValue = -principalVariationSearch(node, -alpha - 1, -alpha, depth - 1 - reduction, ply + 1);
+                if (reduction > 0 && childValue > alpha) {
+                    // the reduced search beat alpha, verify it at full depth
+                    childValue = -principalVariationSearch(node, -alpha - 1, -alpha, depth - 1, ply + 1);
+                }
+                if (childValue > alpha && childValue < beta) {
+                    // the null window search failed high, search again to get the real value
+                    childValue = -principalVariationSearch(node, -beta, -alpha, depth - 1, ply + 1);
+                }
+            }
+
+            undoMove(state, move, signature);
+
+            if (childValue > bestValue) {
+                bestValue = childValue;
+                bestMove = TranspositionTable.encodeMove(move);
+                if (childValue > alpha) {
+                    alpha = childValue;
+                    if (ply == 0) {
+                        node.setBestMove(rootMove(move, signature));
+                    }
+                }
+            }
+
+            if (alpha >= beta) {
+                ordering.cutoff(move, depth, ply, moveIndex);
+                break;
+            }
+        }
+
+        int bound = bestValue >= beta ? TranspositionTable.LOWER
+                : bestValue > alphaOriginal ? TranspositionTable.EXACT
+                : TranspositionTable.UPPER;
+        tt.store(hashKey, depth, bound, bestValue, bestMove);
+        return bestValue;
+    }
+
+    /**
+     * Returns by how many plies the search of a late move is reduced. Captures
+     * and promotions are never reduced.
+     *
+     * @param move      the move to search, encoded as by MoveCodec
+     * @param signature piece signature of the move
+     * @param depth     remaining depth of the node
+     * @param moveIndex index of the move in the ordered move list
+     * @return the reduction, 0 if the move is searched to full depth
+     */
+    private int reduction(long move, long signature, int depth, int moveIndex) {
+        boolean promotion = (signature & 7) != (signature >>> 3 & 7);
+        if (MoveCodec.capturedFields(move) != 0 || promotion) {
+            return 0;
+        }
+        return REDUCTIONS[Math.min(depth, 63)][Math.min(moveIndex, 63)];
+    }
+
+    /**
+     * Quiescence search at the horizon of the main search: captures are
+     * searched until the position is quiet, so the evaluation is never done
+     * halfway a capture sequence. Since captures are compulsory in draughts, the
+     * player to move can only stand pat (take the static evaluation) in a
+     * position without captures; then no further moves are searched.
+     *
+     * @param node  contains DraughtsState
+     * @param alpha the value the player to move is already assured of
+     * @param beta  the value the opponent is already assured of
+     * @param ply   distance from the root of the search tree
+     * @return the computed value of this node, from the perspective of the
+     * player to move
+     * @throws AIStoppedException thrown whenever the boolean stopped has been set to true
+     *                            or the deadline has passed.
+     */
+    private int quiescence(DraughtsNode node, int alpha, int beta, int ply)
+            throws AIStoppedException {
+        pollStop();
+        quiescenceNodes++;
+
+        DraughtsState state = node.getState();
+        SearchStack.Frame frame = stack.frame(ply);
+        frame.setSize(generator.generateCaptures(board, state.isWhiteToMove(), frame.moves()));
+        if (frame.size() == 0) {
+            // quiet position: stand pat (the evaluation detects a lost position)
+            return evaluateRelative(state);
+        }
+
+        int bestValue = -INFINITY;
+        for (int i = 0; i < frame.size(); i++) {
+            long move = frame.move(i);
+            long signature = doMove(state, move);
+            int childValue = -quiescence(node, -beta, -alpha, ply + 1);
+            undoMove(state, move, signature);
+
+            if (childValue > bestValue) {
+                bestValue = childValue;
+                if (childValue > alpha) {
+                    alpha = childValue;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestValue;
+    }
+
+    /**
+     * Returns the move to search first: at the root the best move of the
+     * previous iteration, elsewhere the best move in the transposition table.
+     */
+    private int hashMove(long entry, int ply) {
+        if (ply == 0 && rootBestMove != null) {
+            return TranspositionTable.encodeMove(rootBestMove);
+        }
+        return TranspositionTable.move(entry);
+    }
+
+    /**
+     * Returns the legal move of the root with the given encoding. Only if the
+     * core move generator does not know the move, a Move is decoded from it.
+     */
+    private Move rootMove(long move, long signature) {
+        for (int i = 0; i < rootMoves.size(); i++) {
+            if (MoveCodec.encode(rootMoves.get(i)) == move) {
+                return rootMoves.get(i);
+            }
+        }
+        return MoveCodec.decode(move, signature);
+    }
+
+    /**
+     * Does an encoded move in state and updates the bitboards accordingly.
+     *
+     * @return the piece signature of the move, needed to undo it
+     */
+    private long doMove(DraughtsState state, long move) {
+        long signature = state.doMove(move);
+        board.doMove(move, signature);
+        return signature;
+    }
+
+    /**
+     * Undoes an encoded move in state and updates the bitboards accordingly.
+     */
+    private void undoMove(DraughtsState state, long move, long signature) {
+        state.undoMove(move, signature);
+        board.undoMove(move, signature);
+    }
+
+    /**
+     * Evaluates the given state from the perspective of the player to move.
+     */
+    private int evaluateRelative(DraughtsState state) {
+        int value = evaluate(state);
+        return state.isWhiteToMove() ? value : -value;
+    }
+
+    /**
+     * Evaluates the given state from the perspective of the white player,
+     * using the evaluation cache. The bitboards must belong to state.
+     */
+    private int evaluate(DraughtsState state) {
+        long hashKey = state.hashKey();
+        int value = evalCache.probe(hashKey);
+        if (value == EvalCache.MISS) {
+            value = staticEvaluation(state);
+            evalCache.store(hashKey, value);
+        }
+        return value;
+    }
+
+    /**
+     * A method that evaluates the given state, from the perspective of the
+     * white player. The bitboards must hold the same position as state.
+     */
+    private int staticEvaluation(DraughtsState state) {
+        // If a player can make no moves, they lose
+        if (!generator.hasMove(board, state.isWhiteToMove())) {
+            if (state.isWhiteToMove()) {
+                return -WIN_VALUE;
+            } else {
+                return WIN_VALUE;
+            }
+        }
+
+        return 30 * evalCount(state) +
+                4 * evalFormations(board) +
+                2 * evalBaseline(state, board) +
+                evalTempi(state) +
+                evalCenter(state);
+    }
+
+    /**
+     * Counts the number of pieces for each player.
+     *
+     * @param state board state
+     * @return difference of piece count between players
+     */
+    private int evalCount(DraughtsState state) {
+        int piecesWhite = state.getPieceCount(DraughtsState.WHITEPIECE);
+        int piecesBlack = state.getPieceCount(DraughtsState.BLACKPIECE);
+        int kingsWhite = state.getPieceCount(DraughtsState.WHITEKING);
+        int kingsBlack = state.getPieceCount(DraughtsState.BLACKKING);
+
+        int pieceWeight, kingWeight;
+        if (piecesWhite + piecesBlack > 15) {
+            pieceWeight = 1;
+            kingWeight = 3;
+        } else {
+            // Kings are more important in end-game
+            pieceWeight = 1;
+            kingWeight = 5;
+        }
+
+        return pieceWeight * (piecesWhite - piecesBlack) +
+                kingWeight * (kingsWhite - kingsBlack);
+    }
+
+    /**
+     * Gets a score based on the strength of formations on the board, i.e. rows of 2 or 3 same-colored pieces.
+     *
+     * @param board bitboards of the state
+     * @return difference of formation strength between players
+     */
+    private int evalFormations(Bitboard board) {
+        return board.whiteFormations() - board.blackFormations();
+    }
+
+    /**
+     * Gets a score based on how many pieces are still on the baseline (more is better).
+     * Only affects early to mid game (at least 25 pieces on the board, not
+     * counting pieces on the opponent's baseline).
+     *
+     * @param state board state
+     * @param board bitboards of the state
+     * @return difference of baseline score between players
+     */
+    private int evalBaseline(DraughtsState state, Bitboard board) {
+        int total = state.getPieceCount(DraughtsState.WHITEPIECE) +
+                state.getPieceCount(DraughtsState.WHITEKING) +
+                state.getPieceCount(DraughtsState.BLACKPIECE) +
+                state.getPieceCount(DraughtsState.BLACKKING) -
+                Long.bitCount(board.white() & BLACK_BACK_ROW) -
+                Long.bitCount(board.black() & WHITE_BACK_ROW);
+
+        if (total < 25) {
+            return 0;
+        }
+        return state.getBaselineCount(true) - state.getBaselineCount(false);
+    }
+
+    /**
+     * Calculates the tempi difference, to measure how far pieces have advanced in the field.
+     * Calculated as the sum of each piece multiplied with its row position.
+     *
+     * @param state board state
+     * @return tempi difference
+     */
+    private int evalTempi(DraughtsState state) {
+        return state.getTempi(true) - state.getTempi(false);
+    }
+
+    /**
+     * Counts pieces in the center of the board (e.g. not on the edges).
+     *
+     * @param state board state
+     * @return difference in center pieces between players
+     */
+    private int evalCenter(DraughtsState state) {
+        return state.getCenterCount(true) - state.getCenterCount(false);
+    }
+}
@@ -0,0 +1,175 @@
+package nl.tue.s2id90.group92;
+
+/**
+ * Decides how long the iterative deepening of a single move may take. Every
+ * move has a time budget, learned from the time at which the GUI or
+ * tournament calls stop(). When a search ends by itself, before a stop
+ * request arrives, the budget is increased a little, so that a budget that
+ * was learned too low (or that the GUI has raised) is learned again from the
+ * next stop request. From the budget two limits are derived:
+ * <ul>
+ * <li> the soft limit: no new iteration is started after it has passed; when
+ * the best move has been the same for a number of iterations, the soft limit
+ * is lowered
+ * <li> the hard limit: the search is aborted when it passes; no new iteration
+ * is started if it is predicted (from the time of the last iteration and the
+ * branching factor) to pass this limit
+ * </ul>
+ * All times are in nanoseconds, as given by System.nanoTime().
+ *
+ * @author Nimo Beeren & Maas van Apeldoorn
+ */
+public class TimeManager {
+    private static final double SOFT_FRACTION = 0.5;
+    private static final double HARD_FRACTION = 0.95;
+
+    /**
+     * Number of iterations in a row that the best move must be the same for
+     * the best move to be considered stable.
+     */
+    private static final int STABLE_ITERATIONS = 3;
+
+    /**
+     * Factor applied to the soft limit when the best move is stable.
+     */
+    private static final double STABLE_FACTOR = 0.5;
+
+    private static final double DEFAULT_BRANCHING_FACTOR = 3;
+    private static final double MIN_BRANCHING_FACTOR = 1.5;
+    private static final double MAX_BRANCHING_FACTOR = 8;
+
+    /**
+     * Factor applied to the budget when a search ended by itself, without a
+     * stop request.
+     */
+    private static final double BUDGET_GROWTH = 1.25;
+
+    /**
+     * Time budget per move, 0 if it is not known (yet).
+     */
+    private volatile long budget;
+
+    /**
+     * Whether or not a stop request arrived since the start of the search.
+     */
+    private boolean stopReceived;
+
+    /**
+     * Whether or not a search is running, i.e. start() has been called and
+     * searchFinished() has not.
+     */
+    private boolean searching;
+
+    private long start;
+    private long iterationStart;
+    private long lastIterationTime;
+    private long previousIterationTime;
+    private int lastBestMove;
+    private int stableIterations;
+
+    /**
+     * Called at the start of the search of a move.
+     */
+    public synchronized void start() {
+        start = System.nanoTime();
+        stopReceived = false;
+        searching = true;
+        lastIterationTime = 0;
+        previousIterationTime = 0;
+        lastBestMove = 0;
+        stableIterations = 0;
+    }
+
+    /**
+     * Called when the player is asked to stop. The time since the start of the
+     * search is taken as the budget for the next moves. A request that arrives
+     * when no search is running says nothing about the budget, and is ignored.
+     */
+    public synchronized void stopRequested() {
+        if (!searching) {
+            return;     // the time since start belongs to an earlier search
+        }
+        budget = System.nanoTime() - start;
+        stopReceived = true;
+    }
+
+    /**
+     * Called at the end of the search of a move.
+     *
+     * @param timeLimited whether or not the search was ended by the limits of
+     *                    this time manager
+     */
+    public synchronized void searchFinished(boolean timeLimited) {
+        searching = false;
+        if (timeLimited && !stopReceived && budget != 0) {
+            budget = (long) (budget * BUDGET_GROWTH);
+        }
+    }
+
+    /**
+     * @return the time budget per move in nanoseconds, 0 if it is not known
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return the time at which the search must be aborted
+     */
+    public long deadline() {
+        long b = budget;
+        return b == 0 ? Long.MAX_VALUE : start + (long) (b * HARD_FRACTION);
+    }
+
+    /**
+     * @return whether or not there is time to start the next iteration
+     */
+    public boolean startNextIteration() {
+        long b = budget;
+        iterationStart = System.nanoTime();
+        if (b == 0) {
+            return true;
+        }
+        long elapsed = iterationStart - start;
+        double softLimit = b * SOFT_FRACTION;
+        if (stableIterations >= STABLE_ITERATIONS) {
+            softLimit *= STABLE_FACTOR;
+        }
+        if (elapsed >= softLimit) {
+            return false;
+        }
+        double predicted = lastIterationTime * branchingFactor();
+        return elapsed + predicted <= b * HARD_FRACTION;
+    }
+
+    /**
+     * Called when an iteration has been completed.
+     *
+     * @param bestMove encoded best move found in the iteration
+     */
+    public void iterationFinished(int bestMove) {
+        previousIterationTime = lastIterationTime;
+        lastIterationTime = System.nanoTime() - iterationStart;
+        stableIterations = bestMove == lastBestMove ? stableIterations + 1 : 0;
+        lastBestMove = bestMove;
+    }
+
+    /**
+     * @return estimate of the ratio between the time of the next and the last
+     * iteration
+     */
+    public double branchingFactor() {
+        if (previousIterationTime == 0) {
+            return DEFAULT_BRANCHING_FACTOR;
+        }
+        double factor = (double) lastIterationTime / previousIterationTime;
+        return Math.max(MIN_BRANCHING_FACTOR, Math.min(MAX_BRANCHING_FACTOR, factor));
+    }
+
+    /**
+     * @return time since the start of the search, in nanoseconds
+     */
+    public long elapsed() {
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,141 @@
+package nl.tue.s2id90.group92;
+
+import org10x10.dam.game.Move;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table that stores search results per position.
+ * Entries are kept in a single long array, two slots per entry: the first
+ * slot holds the Zobrist key XOR-ed with the data, the second slot holds the
+ * packed data.
+ * <p>
+ * The table is shared by the threads of a multi-threaded search without any
+ * locking. An entry whose slots were written by two threads at the same time
+ * no longer satisfies key == first ^ second, so such a torn entry simply
+ * reads as a miss.
+ * <p>
+ * Layout of the data slot:
+ * <blockquote><pre>
+ *  bits  0-31  score (int)
+ *  bits 32-39  search depth
+ *  bits 40-41  bound type (LOWER, UPPER or EXACT)
+ *  bits 42-53  best move (begin field | end field &lt;&lt; 6), 0 if unknown
+ * </pre></blockquote>
+ * Since the bound type is never 0, a data slot of 0 means "no entry".
+ *
+ * @author Nimo Beeren & Maas van Apeldoorn
+ */
+public class TranspositionTable {
+    /**
+     * The stored score is a lower bound on the real value (fail high).
+     */
+    public static final int LOWER = 1;
+
+    /**
+     * The stored score is an upper bound on the real value (fail low).
+     */
+    public static final int UPPER = 2;
+
+    /**
+     * The stored score is the exact value.
+     */
+    public static final int EXACT = 3;
+
+    private final long[] table;
+    private final int mask;
+
+    /**
+     * Creates a table with 2^sizeBits entries.
+     *
+     * @param sizeBits log2 of the number of entries
+     */
+    public TranspositionTable(int sizeBits) {
+        table = new long[2 << sizeBits];
+        mask = (1 << sizeBits) - 1;
+    }
+
+    /**
+     * Looks up the entry for the given key.
+     *
+     * @param key hash key of the position
+     * @return packed data of the entry, or 0 if there is no entry for the key
+     */
+    public long probe(long key) {
+        int i = index(key);
+        long data = table[i + 1];
+        return (table[i] ^ data) == key ? data : 0;
+    }
+
+    /**
+     * Stores a search result. An existing entry for the same position is only
+     * replaced by a result of at least the same depth; entries of other
+     * positions are always replaced.
+     *
+     * @param key   hash key of the position
+     * @param depth depth to which the position was searched
+     * @param bound one of LOWER, UPPER or EXACT
+     * @param score the search result
+     * @param move  the encoded best move, or 0 if unknown
+     */
+    public void store(long key, int depth, int bound, int score, int move) {
+        int i = index(key);
+        long old = table[i + 1];
+        if ((table[i] ^ old) == key && depth(old) > depth) {
+            return;
+        }
+        long data = (score & 0xFFFFFFFFL)
+                | (long) Math.min(depth, 0xFF) << 32
+                | (long) bound << 40
+                | (long) move << 42;
+        table[i] = key ^ data;
+        table[i + 1] = data;
+    }
+
+    /**
+     * Removes all entries from the table.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+    }
+
+    public static int score(long data) {
+        return (int) data;
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 40) & 0x3;
+    }
+
+    public static int move(long data) {
+        return (int) (data >>> 42) & 0xFFF;
+    }
+
+    /**
+     * Encodes a move in the 12 bits that are available for it in an entry.
+     *
+     * @param move a move
+     * @return begin field | end field &lt;&lt; 6
+     */
+    public static int encodeMove(Move move) {
+        return move.getBeginField() | move.getEndField() << 6;
+    }
+
+    /**
+     * Encodes a move, given as encoded by MoveCodec, like encodeMove(Move).
+     *
+     * @param move a move encoded by MoveCodec
+     * @return begin field | end field &lt;&lt; 6
+     */
+    public static int encodeMove(long move) {
+        return (int) move & 0xFFF;
+    }
+
+        private int index(long key) {
+        return ((int) (key ^ (key >>> 32)) & mask) << 1;
+    }
+}
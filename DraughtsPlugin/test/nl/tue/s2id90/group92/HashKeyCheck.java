@@ -0,0 +1,163 @@
+package nl.tue.s2id90.group92;
+
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.MoveCodec;
+import org10x10.dam.game.Move;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks the incrementally updated Zobrist hash key of DraughtsState against
+ * the key computed from scratch.
+ * <p>
+ * First, on the positions of random games, every legal move is done and taken
+ * back, both as a Move and in its encoded form (see MoveCodec). After each
+ * doMove the key must equal the key computed from scratch, both forms must
+ * give the same key, and each undoMove must restore the original key. Moves
+ * that capture their own begin field (see MoveGeneratorCheck) cannot be
+ * encoded, so the encoded form is skipped for them.
+ * <p>
+ * Second, a few games are played by AlphaBeast searching to a fixed depth.
+ * Run with -Ddraughts.verifyHashKey=true, so that DraughtsState checks the key
+ * on every doMove and undoMove of the search as well; without it, only the
+ * keys of the played positions are checked.
+ * <p>
+ * This is a development tool, kept in the test sources so that it is not
+ * part of the plugin that is handed in for a tournament.
+ * <p>
+ * Usage: HashKeyCheck [number of positions [number of searched plies [seed]]]
+ *
+ * @author Nimo Beeren & Maas van Apeldoorn
+ */
+public class HashKeyCheck {
+    /**
+     * Games longer than this are restarted, so most positions are not endgames.
+     */
+    private static final int MAX_GAME_LENGTH = 200;
+
+    /**
+     * Depth of the searches in the searched games.
+     */
+    private static final int SEARCH_DEPTH = 8;
+
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    private static long errors = 0;
+
+    public static void main(String[] args) {
+        long positions = args.length > 0 ? Long.parseLong(args[0]) : 100000;
+        long plies = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+        if (!Boolean.getBoolean("draughts.verifyHashKey")) {
+            System.out.println("draughts.verifyHashKey is not set: the keys inside the searches are not checked");
+        }
+
+        Random random = new Random(seed);
+        DraughtsState state = new DraughtsState();
+        int gameLength = 0;
+        long skipped = 0;
+        for (long position = 0; position < positions; position++) {
+            List<Move> moves = state.getMoves();
+            if (moves.isEmpty() || gameLength >= MAX_GAME_LENGTH) {
+                state.reset();
+                gameLength = 0;
+                moves = state.getMoves();
+            }
+            check(state, "position " + position);
+            for (Move move : moves) {
+                if (!checkMove(state, move)) {
+                    skipped++;
+                }
+            }
+            state.doMove(moves.get(random.nextInt(moves.size())));
+            gameLength++;
+        }
+        System.out.format("checked %d positions, %d errors, %d encoded moves skipped\n",
+                positions, errors, skipped);
+
+        long searched = searchGames(plies);
+        System.out.format("checked %d searched plies, %d errors\n", searched, errors);
+        System.exit(errors == 0 ? 0 : 1);
+    }
+
+    /**
+     * Does and takes back move in state, as a Move and in its encoded form.
+     *
+     * @return false if the encoded form was skipped
+     */
+    private static boolean checkMove(DraughtsState state, Move move) {
+        long key = state.hashKey();
+        state.doMove(move);
+        long keyAfterMove = state.hashKey();
+        check(state, "after " + move);
+        state.undoMove(move);
+        check(state, "after undoing " + move);
+        expect(state.hashKey() == key, state, "undoing " + move + " did not restore the key");
+
+        if (capturesBeginField(move)) {
+            return false;
+        }
+        long code = MoveCodec.encode(move);
+        long signature = state.doMove(code);
+        check(state, "after encoded " + move);
+        expect(state.hashKey() == keyAfterMove, state, "encoded " + move + " gives another key");
+        state.undoMove(code, signature);
+        check(state, "after undoing encoded " + move);
+        expect(state.hashKey() == key, state, "undoing encoded " + move + " did not restore the key");
+        return true;
+    }
+
+    /**
+     * Plays games of AlphaBeast against itself, restarting when a game ends.
+     *
+     * @return number of plies played
+     */
+    private static long searchGames(long plies) {
+        AlphaBeast player = new AlphaBeast(SEARCH_DEPTH, 1);
+        DraughtsState state = new DraughtsState();
+        long ply = 0;
+        try {
+            for (; ply < plies; ply++) {
+                if (state.isEndState()) {
+                    state.reset();
+                }
+                Move move = player.getMove(state.clone());
+                state.doMove(move);
+                check(state, "after searched ply " + ply);
+            }
+        } catch (IllegalStateException e) {
+            error(e.getMessage());
+        }
+        return ply;
+    }
+
+    private static void check(DraughtsState state, String where) {
+        expect(state.hashKey() == state.computeHashKey(), state, "hash key out of sync " + where);
+    }
+
+    private static void expect(boolean condition, DraughtsState state, String message) {
+        if (!condition) {
+            error(message + ":\n" + state);
+        }
+    }
+
+    private static void error(String message) {
+        if (++errors <= MAX_REPORTED_ERRORS) {
+            System.out.println(message);
+        }
+    }
+
+    /**
+     * @return whether or not move captures its own begin field
+     */
+    private static boolean capturesBeginField(Move move) {
+        for (int i = 0; i < move.getCaptureCount(); i++) {
+            if (move.getCapturedField(i) == move.getBeginField()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,136 @@
+package nl.tue.s2id90.group92;
+
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.MoveCodec;
+import org10x10.dam.game.Move;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks the BitboardMoveGenerator against the move generator of DraughtsState
+ * on the positions of random games. For every position, both generators must
+ * produce the same set of moves, without duplicates.
+ * <p>
+ * The generator of DraughtsState reports a wrong captured field when a king
+ * passes over its own begin field during a capture: it reports the begin
+ * field instead of the last captured piece. Positions with such a move are
+ * skipped.
+ * <p>
+ * This is a development tool, kept in the test sources so that it is not
+ * part of the plugin that is handed in for a tournament.
+ * <p>
+ * Usage: MoveGeneratorCheck [number of positions [seed]]
+ *
+ * @author Nimo Beeren & Maas van Apeldoorn
+ */
+public class MoveGeneratorCheck {
+    /**
+     * Games longer than this are restarted, so most positions are not endgames.
+     */
+    private static final int MAX_GAME_LENGTH = 200;
+
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    public static void main(String[] args) {
+        long positions = args.length > 0 ? Long.parseLong(args[0]) : 1000000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+
+        Random random = new Random(seed);
+        BitboardMoveGenerator generator = new BitboardMoveGenerator();
+        Bitboard board = new Bitboard();
+        long[] generated = new long[BitboardMoveGenerator.MAX_MOVES];
+        long[] expected = new long[BitboardMoveGenerator.MAX_MOVES];
+
+        DraughtsState state = new DraughtsState();
+        int gameLength = 0;
+        long errors = 0;
+        long skipped = 0;
+        for (long position = 0; position < positions; position++) {
+            List<Move> moves = state.getMoves();
+            if (moves.isEmpty() || gameLength >= MAX_GAME_LENGTH) {
+                state.reset();
+                gameLength = 0;
+                moves = state.getMoves();
+            }
+
+            if (hasBeginFieldCapture(moves)) {
+                skipped++;
+            } else if (!check(generator, board, state, moves, generated, expected)) {
+                if (++errors <= MAX_REPORTED_ERRORS) {
+                    int n = generator.generate(board, state.isWhiteToMove(), generated);
+                    System.out.format("mismatch in position %d:\n%s\nexpected %s\ngenerated %s\n",
+                            position, state, moves, toString(generated, n));
+                }
+            }
+
+            state.doMove(moves.get(random.nextInt(moves.size())));
+            gameLength++;
+        }
+        System.out.format("checked %d positions, %d mismatches, %d skipped\n", positions, errors, skipped);
+        System.exit(errors == 0 ? 0 : 1);
+    }
+
+    /**
+     * Compares the moves of both generators in state, and the results of
+     * hasCapture and hasMove.
+     *
+     * @return whether or not the generators agree
+     */
+    private static boolean check(BitboardMoveGenerator generator, Bitboard board,
+            DraughtsState state, List<Move> moves, long[] generated, long[] expected) {
+        board.set(state);
+        boolean white = state.isWhiteToMove();
+        int n = generator.generate(board, white, generated);
+        for (int i = 0; i < moves.size(); i++) {
+            expected[i] = MoveCodec.encode(moves.get(i));
+        }
+        return sameMoves(generated, n, expected, moves.size())
+                && generator.hasCapture(board, white) == moves.get(0).isCapture()
+                && generator.hasMove(board, white);
+    }
+
+    /**
+     * @return whether or not one of the moves captures its own begin field
+     */
+    private static boolean hasBeginFieldCapture(List<Move> moves) {
+        for (Move move : moves) {
+            for (int i = 0; i < move.getCaptureCount(); i++) {
+                if (move.getCapturedField(i) == move.getBeginField()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the moves as sets; the generated moves may not contain
+     * duplicates.
+     */
+    private static boolean sameMoves(long[] generated, int n, long[] expected, int m) {
+        long[] a = Arrays.copyOf(generated, n);
+        long[] b = Arrays.copyOf(expected, m);
+        Arrays.sort(a);
+        Arrays.sort(b);
+        for (int i = 1; i < n; i++) {
+            if (a[i] == a[i - 1]) {
+                return false;
+            }
+        }
+        return Arrays.equals(a, Arrays.stream(b).distinct().toArray());
+    }
+
+    private static String toString(long[] moves, int n) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < n; i++) {
+            long move = moves[i];
+            sb.append(i > 0 ? ", " : "")
+                    .append(MoveCodec.beginField(move))
+                    .append(MoveCodec.captureCount(move) > 0 ? "x" : "-")
+                    .append(MoveCodec.endField(move));
+        }
+        return sb.append("]").toString();
+    }
+}